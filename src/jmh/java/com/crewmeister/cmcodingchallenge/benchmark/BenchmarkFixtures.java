@@ -0,0 +1,113 @@
+package com.crewmeister.cmcodingchallenge.benchmark;
+
+import com.crewmeister.cmcodingchallenge.config.SupportedCurrenciesConfig;
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Deterministic fixtures shaped like the real data: a business-day history since the introduction of
+ * the euro for each currency, with the occasional missing value on bank holidays.
+ */
+final class BenchmarkFixtures {
+
+    static final LocalDate FIRST_DAY = LocalDate.of(1999, 1, 4);
+    static final LocalDate LAST_DAY = LocalDate.of(2024, 12, 31);
+
+    private static final List<LocalDate> BUSINESS_DAYS = businessDays(FIRST_DAY, LAST_DAY);
+    private static final String TS_ID_TEMPLATE = "BBEX3.D.%s.EUR.BB.AC.000";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * @return the first {@code count} supported currencies other than EUR.
+     */
+    static List<String> currencies(int count) {
+        return new SupportedCurrenciesConfig().getCurrencies().stream()
+                .filter(code -> !"EUR".equals(code))
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    static List<LocalDate> businessDays() {
+        return BUSINESS_DAYS;
+    }
+
+    /**
+     * A multi-series Bundesbank download: title and unit rows, one value and one flags column per
+     * series, and "." with a flag for days without a value.
+     */
+    static String bundesbankCsv(List<String> currencies) {
+        List<long[]> series = new ArrayList<>();
+        StringBuilder csv = new StringBuilder(64 + BUSINESS_DAYS.size() * (12 + currencies.size() * 12));
+        csv.append(',');
+        StringBuilder units = new StringBuilder("unit");
+        for (int i = 0; i < currencies.size(); i++) {
+            String tsId = String.format(TS_ID_TEMPLATE, currencies.get(i));
+            csv.append('"').append(tsId).append("\",\"").append(tsId).append("_FLAGS\"");
+            csv.append(i + 1 < currencies.size() ? "," : "\n");
+            units.append(',').append(currencies.get(i)).append(",");
+            series.add(scaledRates(currencies.get(i)));
+        }
+        csv.append(units).append('\n');
+        for (int day = 0; day < BUSINESS_DAYS.size(); day++) {
+            csv.append(BUSINESS_DAYS.get(day));
+            for (int i = 0; i < currencies.size(); i++) {
+                long rate = series.get(i)[day];
+                if (rate < 0) {
+                    csv.append(",.,Kein Wert vorhanden");
+                } else {
+                    csv.append(',').append(BigDecimal.valueOf(rate, 4).toPlainString()).append(',');
+                }
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * The rows the Bundesbank download of the given currencies would store.
+     */
+    static List<ExchangeRate> rates(List<String> currencies) {
+        List<ExchangeRate> rates = new ArrayList<>(currencies.size() * BUSINESS_DAYS.size());
+        for (String currency : currencies) {
+            long[] series = scaledRates(currency);
+            for (int day = 0; day < BUSINESS_DAYS.size(); day++) {
+                if (series[day] >= 0) {
+                    rates.add(new ExchangeRate(null, currency, BigDecimal.valueOf(series[day], 4), BUSINESS_DAYS.get(day)));
+                }
+            }
+        }
+        return rates;
+    }
+
+    // Random walk around a per-currency level, rates scaled by 10^4; -1 marks a day without a value
+    private static long[] scaledRates(String currency) {
+        Random random = new Random(currency.hashCode());
+        long[] rates = new long[BUSINESS_DAYS.size()];
+        long rate = 5_000 + random.nextInt(2_000_000);
+        for (int day = 0; day < rates.length; day++) {
+            rate = Math.max(1, rate + rate * (random.nextInt(201) - 100) / 20_000);
+            rates[day] = random.nextInt(40) == 0 ? -1 : rate;
+        }
+        return rates;
+    }
+
+    private static List<LocalDate> businessDays(LocalDate from, LocalDate to) {
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                days.add(day);
+            }
+        }
+        return Collections.unmodifiableList(days);
+    }
+}
@@ -0,0 +1,157 @@
+package com.crewmeister.cmcodingchallenge.benchmark;
+
+import com.crewmeister.cmcodingchallenge.CmCodingChallengeApplication;
+import com.crewmeister.cmcodingchallenge.dto.BatchConversionResultDTO;
+import com.crewmeister.cmcodingchallenge.dto.ConversionRequestDTO;
+import com.crewmeister.cmcodingchallenge.dto.ConversionResultDTO;
+import com.crewmeister.cmcodingchallenge.dto.CrossConversionResultDTO;
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRateDTO;
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.export.ExportFormat;
+import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import com.crewmeister.cmcodingchallenge.service.ExchangeRateService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serving paths against a populated rate store: the application context is started without a web
+ * server, the database is filled with the full business-day history of {@code currencies}
+ * currencies and the index is loaded from it, as after an ingestion. Lookups cycle through a
+ * fixed random sample of (currency, date) pairs that all have a stored rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExchangeRateServiceBenchmark {
+
+    private static final int SAMPLES = 4096;
+    private static final int BATCH_SIZE = 1000;
+    private static final int UPSERT_CHUNK = 10_000;
+    private static final BigDecimal AMOUNT = new BigDecimal("1234.56");
+
+    @Param("30")
+    private int currencies;
+
+    private ConfigurableApplicationContext context;
+    private ExchangeRateService exchangeRateService;
+    private ExchangeRateRepository exchangeRateRepository;
+
+    private final String[] sampleCurrencies = new String[SAMPLES];
+    private final LocalDate[] sampleDates = new LocalDate[SAMPLES];
+    private List<ConversionRequestDTO> batch;
+    private List<ExchangeRateDTO> dateListing;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(CmCodingChallengeApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("exchange-rate.warm-up.enabled=false",
+                        "spring.main.banner-mode=off",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN")
+                .run();
+        exchangeRateService = context.getBean(ExchangeRateService.class);
+        exchangeRateRepository = context.getBean(ExchangeRateRepository.class);
+
+        List<String> codes = BenchmarkFixtures.currencies(currencies);
+        List<ExchangeRate> rates = BenchmarkFixtures.rates(codes);
+        for (int from = 0; from < rates.size(); from += UPSERT_CHUNK) {
+            exchangeRateRepository.upsertAll(rates.subList(from, Math.min(from + UPSERT_CHUNK, rates.size())));
+        }
+        codes.forEach(exchangeRateService::refreshIndex);
+
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            ExchangeRate rate = rates.get(random.nextInt(rates.size()));
+            sampleCurrencies[i] = rate.getCurrencyCode();
+            sampleDates[i] = rate.getDate();
+        }
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new ConversionRequestDTO(sampleCurrencies[i], AMOUNT, sampleDates[i]));
+        }
+        dateListing = exchangeRateService.getExchangeRatesForDate(sampleDates[0]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ConversionResultDTO convertAmountToEuro() {
+        int i = nextSample();
+        return exchangeRateService.convertAmountToEuro(AMOUNT, sampleCurrencies[i], sampleDates[i]);
+    }
+
+    @Benchmark
+    public CrossConversionResultDTO convertAmountBetweenCurrencies() {
+        int i = nextSample();
+        return exchangeRateService.convertAmount(AMOUNT, sampleCurrencies[i],
+                sampleCurrencies[(i + 1) & (SAMPLES - 1)], sampleDates[i]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<BatchConversionResultDTO> convertBatch() {
+        return exchangeRateService.convertBatch(batch);
+    }
+
+    @Benchmark
+    public Optional<ExchangeRate> findRateByCurrencyAndDate() {
+        int i = nextSample();
+        return exchangeRateRepository.findByCurrencyCodeAndDate(sampleCurrencies[i], sampleDates[i]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<ExchangeRateDTO> listRatesForDate() {
+        return exchangeRateService.getExchangeRatesForDate(sampleDates[nextSample()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void writeDateListingAsJson() throws IOException {
+        exchangeRateService.writeExchangeRates(dateListing, ExportFormat.JSON, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void writeAllRatesAsJson() throws IOException {
+        exchangeRateService.writeAllExchangeRates(ExportFormat.JSON, OutputStream.nullOutputStream());
+    }
+
+    private int nextSample() {
+        int i = next;
+        next = (i + 1) & (SAMPLES - 1);
+        return i;
+    }
+}
@@ -0,0 +1,54 @@
+package com.crewmeister.cmcodingchallenge.benchmark;
+
+import com.crewmeister.cmcodingchallenge.parser.RateCsvParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse throughput of full-history Bundesbank downloads, for a single series and for a bulk
+ * download of the default {@code bundesbank.bulk.max-series} series. Reading includes UTF-8
+ * decoding, as in the strategies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateCsvParserBenchmark {
+
+    @Param({"1", "40"})
+    private int currencies;
+
+    private byte[] csv;
+
+    @Setup
+    public void setUp() {
+        csv = BenchmarkFixtures.bundesbankCsv(BenchmarkFixtures.currencies(currencies))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long parseFullHistory(Blackhole blackhole) throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8)) {
+            return new RateCsvParser().parse(reader, (column, date, rate) -> blackhole.consume(rate));
+        }
+    }
+}
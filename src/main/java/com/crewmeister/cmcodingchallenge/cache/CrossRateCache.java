@@ -0,0 +1,76 @@
+package com.crewmeister.cmcodingchallenge.cache;
+
+import com.crewmeister.cmcodingchallenge.currency.CurrencyRegistry;
+import com.crewmeister.cmcodingchallenge.dto.CacheStatsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Holds triangulated cross rates as one sparse (from, to) matrix per date. Only the most recently
+ * used dates are kept, so hot pairs on recent dates are served without lookups or division while
+ * memory stays bounded. Pairs are keyed by their packed {@link CurrencyRegistry} ids rather than by
+ * concatenated codes. Ingestion clears the cache whenever it stores rates.
+ */
+@Component
+public class CrossRateCache {
+
+    public static final String NAME = "cross-rates";
+
+    @Value("${exchange-rate.cache.cross-rate-dates:32}")
+    private int maxDates = 32;
+
+    // Access-ordered, so the eldest entry is the least recently used date
+    private final Map<LocalDate, Map<Integer, BigDecimal>> matricesByDate = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LocalDate, Map<Integer, BigDecimal>> eldest) {
+            return size() > maxDates;
+        }
+    };
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Returns the cached cross rate, computing it with the given loader on a miss.
+     * A loader failure propagates and nothing is cached.
+     *
+     * @param fromId the {@link CurrencyRegistry} id of the source currency.
+     * @param toId the {@link CurrencyRegistry} id of the target currency.
+     */
+    public BigDecimal get(int fromId, int toId, LocalDate date, Supplier<BigDecimal> loader) {
+        Map<Integer, BigDecimal> matrix;
+        synchronized (matricesByDate) {
+            matrix = matricesByDate.computeIfAbsent(date, d -> new ConcurrentHashMap<>());
+        }
+        Integer pair = fromId * CurrencyRegistry.ID_COUNT + toId;
+        BigDecimal cached = matrix.get(pair);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        BigDecimal loaded = loader.get();
+        matrix.put(pair, loaded);
+        return loaded;
+    }
+
+    /**
+     * Drops all cached cross rates, e.g. after an ingestion run changed the underlying rates.
+     */
+    public void clear() {
+        synchronized (matricesByDate) {
+            matricesByDate.clear();
+        }
+    }
+
+    public CacheStatsDTO getStats() {
+        return CacheStatsDTO.of(NAME, hits.get(), misses.get());
+    }
+}
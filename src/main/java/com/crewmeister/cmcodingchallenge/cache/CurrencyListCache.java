@@ -0,0 +1,49 @@
+package com.crewmeister.cmcodingchallenge.cache;
+
+import com.crewmeister.cmcodingchallenge.dto.CacheStatsDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Holds the list of currencies that have stored rates. The list only changes when ingestion
+ * runs, so ingestion refreshes it and reads are served without touching the database.
+ */
+@Component
+public class CurrencyListCache {
+
+    public static final String NAME = "currencies";
+
+    private volatile List<String> currencies;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Returns the cached list, loading it with the given loader on a miss.
+     * An empty result is returned but not cached, so the next read tries again.
+     */
+    public List<String> get(Supplier<List<String>> loader) {
+        List<String> cached = currencies;
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        List<String> loaded = List.copyOf(loader.get());
+        put(loaded);
+        return loaded;
+    }
+
+    /**
+     * Replaces the cached list, e.g. after an ingestion run.
+     */
+    public void put(List<String> loaded) {
+        currencies = loaded.isEmpty() ? null : List.copyOf(loaded);
+    }
+
+    public CacheStatsDTO getStats() {
+        return CacheStatsDTO.of(NAME, hits.get(), misses.get());
+    }
+}
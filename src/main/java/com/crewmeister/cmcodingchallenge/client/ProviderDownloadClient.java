@@ -0,0 +1,171 @@
+package com.crewmeister.cmcodingchallenge.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Downloads provider files over the shared {@link HttpClient}. Requests negotiate gzip and can be made
+ * conditional on validators of an earlier response. Bodies are streamed rather than buffered, so they
+ * are parsed while they arrive. The read timeout bounds both the wait for the response headers and
+ * every wait for body data, so a provider that stalls before or during the transfer cannot hold an
+ * ingestion worker (and its database connection) indefinitely. Callers must close the returned streams.
+ */
+@Component
+public class ProviderDownloadClient {
+
+    private final HttpClient httpClient;
+    private final Duration readTimeout;
+    private final ScheduledExecutorService stallWatchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "provider-download-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProviderDownloadClient(HttpClient providerHttpClient,
+                                  @Value("${exchange-rate.http-client.read-timeout-ms:30000}") long readTimeoutMs) {
+        this.httpClient = providerHttpClient;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stallWatchdog.shutdownNow();
+    }
+
+    /**
+     * Starts a download without blocking the calling thread. The future completes with the
+     * (decompressed) body stream once the response headers arrived within the read timeout, or
+     * exceptionally with an {@link IOException} on a network failure or the timeout, or a
+     * {@link ProviderStatusException} on a non-2xx status.
+     * Reading the body throws an {@link IOException} once no data arrived for the read timeout.
+     */
+    public CompletableFuture<InputStream> openAsync(String url) {
+        return downloadAsync(url, null, null).thenApply(ProviderResponse::getBody);
+    }
+
+    /**
+     * Starts a conditional download. When validators from an earlier response are given, they are sent as
+     * If-None-Match / If-Modified-Since and a 304 completes the future with {@link ProviderResponse#notModified()}
+     * without transferring a body.
+     *
+     * @param etag the entity tag of the earlier response, or null.
+     * @param lastModified the Last-Modified value of the earlier response, or null.
+     */
+    public CompletableFuture<ProviderResponse> downloadAsync(String url, String etag, String lastModified) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(readTimeout)
+                .header("Accept-Encoding", "gzip")
+                .GET();
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofInputStream())
+                .orTimeout(readTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(response -> toProviderResponse(url, response));
+    }
+
+    /**
+     * Downloads a file, blocking until the response headers have been received.
+     *
+     * @throws IOException on a non-2xx status, a network failure or the read timeout.
+     */
+    public InputStream open(String url) throws IOException {
+        return download(url, null, null).getBody();
+    }
+
+    /**
+     * Conditional download, blocking until the response headers have been received or it was answered with 304.
+     *
+     * @throws IOException on a non-2xx, non-304 status, a network failure or the read timeout.
+     */
+    public ProviderResponse download(String url, String etag, String lastModified) throws IOException {
+        try {
+            return downloadAsync(url, etag, lastModified).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + url);
+        } catch (ExecutionException e) {
+            throw toIOException(url, e.getCause());
+        }
+    }
+
+    /**
+     * Opens a large file (e.g. a full-history archive) as a stream over the network, so it is consumed
+     * while it arrives. The caller must close the stream.
+     *
+     * @throws IOException on a non-2xx status, a network failure or the read timeout.
+     */
+    public InputStream stream(String url) throws IOException {
+        return open(url);
+    }
+
+    // Decided from the status code alone; the body of a 304 or an error is discarded unread
+    private ProviderResponse toProviderResponse(String url, HttpResponse<InputStream> response) {
+        InputStream body = response.body();
+        if (response.statusCode() == 304) {
+            discard(body);
+            return ProviderResponse.notModified();
+        }
+        if (response.statusCode() / 100 != 2) {
+            discard(body);
+            throw new UncheckedIOException(new ProviderStatusException(response.statusCode(), url));
+        }
+        body = new StallTimeoutInputStream(body, url, readTimeout, stallWatchdog);
+        boolean gzipped = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        try {
+            return ProviderResponse.ok(gzipped ? new GZIPInputStream(body) : body,
+                    response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void discard(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // the connection is released either way
+        }
+    }
+
+    private static IOException toIOException(String url, Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof UncheckedIOException) {
+            return ((UncheckedIOException) cause).getCause();
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof TimeoutException) {
+            return new IOException("Timed out downloading " + url, cause);
+        }
+        return new IOException("Failed to download " + url, cause);
+    }
+}
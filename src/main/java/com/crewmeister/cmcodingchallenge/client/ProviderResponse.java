@@ -0,0 +1,35 @@
+package com.crewmeister.cmcodingchallenge.client;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.InputStream;
+
+/**
+ * A provider download: either the body with the validators the provider sent for it,
+ * or the answer to a conditional request that the resource has not been modified.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ProviderResponse {
+
+    private static final ProviderResponse NOT_MODIFIED = new ProviderResponse(null, null, null);
+
+    /** The (decompressed) body, or null if not modified. */
+    private final InputStream body;
+    private final String etag;
+    private final String lastModified;
+
+    public static ProviderResponse ok(InputStream body, String etag, String lastModified) {
+        return new ProviderResponse(body, etag, lastModified);
+    }
+
+    public static ProviderResponse notModified() {
+        return NOT_MODIFIED;
+    }
+
+    public boolean isNotModified() {
+        return body == null;
+    }
+}
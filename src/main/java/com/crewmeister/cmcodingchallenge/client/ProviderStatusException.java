@@ -0,0 +1,34 @@
+package com.crewmeister.cmcodingchallenge.client;
+
+import java.io.IOException;
+
+/**
+ * A provider answered a download with a status other than 2xx or 304.
+ */
+public class ProviderStatusException extends IOException {
+
+    private final int statusCode;
+
+    public ProviderStatusException(int statusCode, String url) {
+        super("HTTP " + statusCode + " from " + url);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return true when the provider does not know the requested resource, e.g. an unpublished series.
+     */
+    public boolean isNotFound() {
+        return statusCode == 404 || statusCode == 410;
+    }
+
+    /**
+     * @return true when the provider itself failed, as opposed to rejecting the request.
+     */
+    public boolean isServerError() {
+        return statusCode >= 500;
+    }
+}
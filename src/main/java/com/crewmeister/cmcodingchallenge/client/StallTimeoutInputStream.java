@@ -0,0 +1,109 @@
+package com.crewmeister.cmcodingchallenge.client;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response body that fails when a single read waits longer than the timeout for data. A watchdog
+ * closes the underlying stream, which releases the blocked reader; the read then throws instead of
+ * reporting a truncated body as its end. Time the caller spends between reads (parsing, storing)
+ * is not counted, so slow consumers of a healthy download are not cut off.
+ */
+final class StallTimeoutInputStream extends FilterInputStream {
+
+    private final String url;
+    private final long timeoutNanos;
+    private final ScheduledFuture<?> watchdog;
+    private volatile boolean reading;
+    private volatile long readStartedAt;
+    private volatile boolean timedOut;
+
+    StallTimeoutInputStream(InputStream in, String url, Duration timeout, ScheduledExecutorService scheduler) {
+        super(in);
+        this.url = url;
+        this.timeoutNanos = timeout.toNanos();
+        long checkIntervalMs = Math.max(1, timeout.toMillis() / 4);
+        this.watchdog = scheduler.scheduleWithFixedDelay(this::closeIfStalled,
+                checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int read() throws IOException {
+        beginRead();
+        try {
+            return checked(super.read());
+        } catch (IOException e) {
+            throw timedOut ? timeout(e) : e;
+        } finally {
+            reading = false;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        beginRead();
+        try {
+            return checked(super.read(b, off, len));
+        } catch (IOException e) {
+            throw timedOut ? timeout(e) : e;
+        } finally {
+            reading = false;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        beginRead();
+        try {
+            long skipped = super.skip(n);
+            checked(0);
+            return skipped;
+        } catch (IOException e) {
+            throw timedOut ? timeout(e) : e;
+        } finally {
+            reading = false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchdog.cancel(false);
+        super.close();
+    }
+
+    private void beginRead() throws IOException {
+        checked(0);
+        readStartedAt = System.nanoTime();
+        reading = true;
+    }
+
+    // A closed body reads as end of stream; after a timeout that must not pass for a complete download
+    private int checked(int result) throws IOException {
+        if (timedOut) {
+            throw timeout(null);
+        }
+        return result;
+    }
+
+    private void closeIfStalled() {
+        if (reading && System.nanoTime() - readStartedAt > timeoutNanos) {
+            timedOut = true;
+            watchdog.cancel(false);
+            try {
+                in.close();
+            } catch (IOException e) {
+                // the reader is released either way
+            }
+        }
+    }
+
+    private IOException timeout(IOException cause) {
+        return new IOException("Timed out reading " + url + ": no data for "
+                + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms", cause);
+    }
+}
@@ -0,0 +1,26 @@
+package com.crewmeister.cmcodingchallenge.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Shared HTTP client for rate provider downloads. One client keeps a pool of live connections
+ * (HTTP/1.1 keep-alive, or a single multiplexed HTTP/2 connection where the server supports it),
+ * so ingesting many currencies does not pay a TCP and TLS handshake per currency.
+ */
+@Configuration
+public class ProviderHttpClientConfig {
+
+    @Bean
+    public HttpClient providerHttpClient(@Value("${exchange-rate.http-client.connect-timeout-ms:5000}") long connectTimeoutMs) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+}
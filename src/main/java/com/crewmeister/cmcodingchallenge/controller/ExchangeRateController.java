@@ -1,19 +1,33 @@
 package com.crewmeister.cmcodingchallenge.controller;
 
+import com.crewmeister.cmcodingchallenge.dto.BatchConversionResultDTO;
+import com.crewmeister.cmcodingchallenge.dto.CacheStatsDTO;
+import com.crewmeister.cmcodingchallenge.dto.ConversionRequestDTO;
 import com.crewmeister.cmcodingchallenge.dto.ConversionResultDTO;
+import com.crewmeister.cmcodingchallenge.dto.CrossConversionResultDTO;
 import com.crewmeister.cmcodingchallenge.dto.ExchangeRateDTO;
+import com.crewmeister.cmcodingchallenge.dto.ProviderStatsDTO;
+import com.crewmeister.cmcodingchallenge.dto.RateAggregateDTO;
+import com.crewmeister.cmcodingchallenge.export.ExportFormat;
+import com.crewmeister.cmcodingchallenge.service.DatasetVersion;
+import com.crewmeister.cmcodingchallenge.service.AggregatePeriod;
 import com.crewmeister.cmcodingchallenge.service.ExchangeRateService;
 import jakarta.validation.constraints.Pattern;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.*;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
+import javax.servlet.http.HttpServletResponse;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController()
 @RequestMapping("/api")
@@ -23,37 +37,114 @@ public class ExchangeRateController {
     @Autowired
     private ExchangeRateService exchangeRateService;
 
+    @Autowired
+    private DatasetVersion datasetVersion;
+
+    @Value("${exchange-rate.http.cache-max-age:60}")
+    private long cacheMaxAgeSeconds;
+
     /**
      * Retrieves a list of all available currencies for which exchange rates exist.
      *
-     * @return a list of currency codes (e.g., USD, GBP, JPY).
+     * @return a list of currency codes (e.g., USD, GBP, JPY), or 304 if the client's copy is current.
      */
     @GetMapping("/currencies")
-    public ResponseEntity<List<String>> getCurrencies(){
+    public ResponseEntity<List<String>> getCurrencies(WebRequest request){
+        if (isNotModified(request)) {
+            return null;
+        }
         List<String> currencies = exchangeRateService.getAllCurrencies();
-        return new ResponseEntity<>(currencies, HttpStatus.OK);
+        return ResponseEntity.ok().cacheControl(cacheControl()).body(currencies);
     }
 
     /**
-     * Retrieves all exchange rates.
+     * Retrieves all exchange rates. The body is streamed from a database cursor,
+     * so memory use and time to first byte do not depend on the size of the table.
+     * Served as JSON, CSV or the compact binary format depending on the Accept header.
      *
-     * @return list of exchange rates.
+     * @return list of exchange rates, or 304 if the client's copy is current.
      */
     @GetMapping("/exchange-rates")
-    public ResponseEntity<List<ExchangeRateDTO>> getAllExchangeRate(){
-        List<ExchangeRateDTO> allExchangeRates = exchangeRateService.getAllExchangeRates();
-        return new ResponseEntity<>(allExchangeRates, HttpStatus.OK);
+    public ResponseEntity<StreamingResponseBody> getAllExchangeRate(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                    WebRequest request, HttpServletResponse response){
+        ExportFormat format = negotiate(accept, response);
+        if (isNotModified(request, format)) {
+            return null;
+        }
+        exchangeRateService.ensureExchangeRatesExist();
+        StreamingResponseBody body = out -> exchangeRateService.writeAllExchangeRates(format, out);
+        return ResponseEntity.ok().contentType(format.getMediaType()).cacheControl(cacheControl()).body(body);
     }
 
     /**
      * Retrieves all exchange rates or filters them by a specific date.
+     * Served as JSON, CSV or the compact binary format depending on the Accept header.
      *
-     * @return list of exchange rates for all/specified date.
+     * @return list of exchange rates for all/specified date, or 304 if the client's copy is current.
      */
-    @GetMapping("/exchange-rates/{date}")
-    public ResponseEntity<List<ExchangeRateDTO>> getRatesByDate(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+    @GetMapping("/exchange-rates/{date:\\d{4}-\\d{2}-\\d{2}}")
+    public ResponseEntity<StreamingResponseBody> getRatesByDate(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                WebRequest request, HttpServletResponse response) {
+        // The validators are dataset-wide, so invalid input must be rejected before the conditional check
+        exchangeRateService.validateDate(date);
+        ExportFormat format = negotiate(accept, response);
+        if (isNotModified(request, format)) {
+            return null;
+        }
         List<ExchangeRateDTO> allRates = exchangeRateService.getExchangeRatesForDate(date);
-        return new ResponseEntity<>(allRates, HttpStatus.OK);
+        StreamingResponseBody body = out -> exchangeRateService.writeExchangeRates(allRates, format, out);
+        return ResponseEntity.ok().contentType(format.getMediaType()).cacheControl(cacheControl()).body(body);
+    }
+
+    /**
+     * Retrieves the rate history of one currency in date order, e.g. for charting.
+     * Served as JSON, CSV or the compact binary format depending on the Accept header.
+     *
+     * @param currency the currency code (e.g., USD).
+     * @param from the first date (inclusive); defaults to the start of the history.
+     * @param to the last date (inclusive); defaults to today.
+     * @return the exchange rates of the currency in the range, or 304 if the client's copy is current.
+     */
+    @GetMapping("/exchange-rates/{currency:[A-Za-z]{3}}")
+    public ResponseEntity<StreamingResponseBody> getRatesByCurrency(@PathVariable String currency,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                    WebRequest request, HttpServletResponse response) {
+        exchangeRateService.validateCurrencyRange(currency, from, to);
+        ExportFormat format = negotiate(accept, response);
+        if (isNotModified(request, format)) {
+            return null;
+        }
+        List<ExchangeRateDTO> rates = exchangeRateService.getExchangeRatesForCurrency(currency, from, to);
+        StreamingResponseBody body = out -> exchangeRateService.writeExchangeRates(rates, format, out);
+        return ResponseEntity.ok().contentType(format.getMediaType()).cacheControl(cacheControl()).body(body);
+    }
+
+    /**
+     * Retrieves the min, max and average rate of one currency over a window, either as a whole
+     * or split into calendar months or years.
+     *
+     * @param currency the currency code (e.g., USD).
+     * @param from the first date (inclusive); defaults to the start of the history.
+     * @param to the last date (inclusive); defaults to today.
+     * @param period all (default), month or year.
+     * @return one aggregate per period that has rates, in date order, or 304 if the client's copy is current.
+     */
+    @GetMapping("/exchange-rates/{currency:[A-Za-z]{3}}/aggregates")
+    public ResponseEntity<List<RateAggregateDTO>> getRateAggregates(@PathVariable String currency,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                    @RequestParam(required = false) String period,
+                                                                    WebRequest request) {
+        exchangeRateService.validateCurrencyRange(currency, from, to);
+        AggregatePeriod.parse(period);
+        if (isNotModified(request)) {
+            return null;
+        }
+        List<RateAggregateDTO> aggregates = exchangeRateService.getExchangeRateAggregates(currency, from, to, period);
+        return ResponseEntity.ok().cacheControl(cacheControl()).body(aggregates);
     }
 
     /**
@@ -62,6 +153,8 @@ public class ExchangeRateController {
      * @param currency the foreign currency code (e.g., USD).
      * @param amount the amount to convert.
      * @param date the date for which the exchange rate should be used.
+     * @param asOf when true, falls back to the latest rate before the date if none exists on it
+     *             (weekends, holidays); the date of the rate used is returned as rateDate.
      * @return the converted amount in EUR.
      */
     @GetMapping("/convert")
@@ -69,11 +162,66 @@ public class ExchangeRateController {
                                                                  @Pattern(regexp = "[A-Z]{3}", message = "Currency must be 3 uppercase letters")
                                                                  String currency,
                                                              @RequestParam BigDecimal amount,
-                                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-      ConversionResultDTO conversionResultDTO = exchangeRateService.convertAmountToEuro(amount, currency, date);
+                                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                             @RequestParam(defaultValue = "false") boolean asOf) {
+      ConversionResultDTO conversionResultDTO = asOf
+              ? exchangeRateService.convertAmountToEuroAsOf(amount, currency, date)
+              : exchangeRateService.convertAmountToEuro(amount, currency, date);
       return new ResponseEntity<>(conversionResultDTO, HttpStatus.OK);
     }
 
+    /**
+     * Converts a given amount from one currency to another using their EUR rates on a specific date.
+     *
+     * @param from the source currency code (e.g., USD).
+     * @param to the target currency code (e.g., JPY).
+     * @param amount the amount to convert.
+     * @param date the date for which the exchange rates should be used.
+     * @return the converted amount and the cross rate used.
+     */
+    @GetMapping("/convert/cross")
+    public ResponseEntity<CrossConversionResultDTO> convertCrossCurrency(@RequestParam
+                                                                             @Pattern(regexp = "[A-Z]{3}", message = "Currency must be 3 uppercase letters")
+                                                                             String from,
+                                                                         @RequestParam
+                                                                             @Pattern(regexp = "[A-Z]{3}", message = "Currency must be 3 uppercase letters")
+                                                                             String to,
+                                                                         @RequestParam BigDecimal amount,
+                                                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return new ResponseEntity<>(exchangeRateService.convertAmount(amount, from, to, date), HttpStatus.OK);
+    }
+
+    /**
+     * Converts many amounts in foreign currencies to EUR in one request.
+     *
+     * @param requests the items to convert, each with currency, amount and date.
+     * @return one entry per item in input order, holding either the conversion result or an error.
+     */
+    @PostMapping("/convert/batch")
+    public ResponseEntity<List<BatchConversionResultDTO>> convertBatchToEuro(@RequestBody List<ConversionRequestDTO> requests) {
+        return new ResponseEntity<>(exchangeRateService.convertBatch(requests), HttpStatus.OK);
+    }
+
+    /**
+     * Reports hit and miss counters of the in-memory caches.
+     *
+     * @return statistics per cache.
+     */
+    @GetMapping("/cache-stats")
+    public ResponseEntity<List<CacheStatsDTO>> getCacheStats() {
+        return new ResponseEntity<>(exchangeRateService.getCacheStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Reports circuit-breaker state and recent download latencies of the rate providers.
+     *
+     * @return statistics per provider called since startup.
+     */
+    @GetMapping("/provider-stats")
+    public ResponseEntity<List<ProviderStatsDTO>> getProviderStats() {
+        return new ResponseEntity<>(exchangeRateService.getProviderStats(), HttpStatus.OK);
+    }
+
     /**
      * Manually triggers fetching and storing of exchange rate data from the Bundesbank API.
      *
@@ -84,4 +232,29 @@ public class ExchangeRateController {
         exchangeRateService.fetchAndStoreExchangeRatesForAllCurrencies();
         return ResponseEntity.ok("Saved to DB.");
     }
+
+    /**
+     * Evaluates If-None-Match / If-Modified-Since against the dataset version. Sets the ETag and
+     * Last-Modified response headers, and the 304 status when the client's copy is current.
+     */
+    private boolean isNotModified(WebRequest request) {
+        return isNotModified(request, ExportFormat.JSON);
+    }
+
+    private boolean isNotModified(WebRequest request, ExportFormat format) {
+        return request.checkNotModified(datasetVersion.getETag(format.getETagSuffix()), datasetVersion.getLastModified());
+    }
+
+    /**
+     * Resolves the representation from the Accept header. Marks the response as varying by Accept
+     * up front, so caches keep the representations apart for 304 responses too.
+     */
+    private ExportFormat negotiate(String accept, HttpServletResponse response) {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return ExportFormat.fromAcceptHeader(accept);
+    }
+
+    private CacheControl cacheControl() {
+        return CacheControl.maxAge(cacheMaxAgeSeconds, TimeUnit.SECONDS).cachePublic().mustRevalidate();
+    }
 }
@@ -0,0 +1,87 @@
+package com.crewmeister.cmcodingchallenge.currency;
+
+import com.crewmeister.cmcodingchallenge.config.SupportedCurrenciesConfig;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+
+/**
+ * Maps three-letter ISO 4217 codes to dense integer ids and knows which of them are supported.
+ *
+ * An id packs the letters in base 26 ({@code AAA} = 0 ... {@code ZZZ} = 17575), so it is computed
+ * without allocation or hashing, fits in a short, and can index plain arrays. Each id has one
+ * canonical upper-case {@code String}, shared by every caller that needs the code as text.
+ * Validation is a single bit test.
+ */
+@Component
+public class CurrencyRegistry {
+
+    /** Number of possible ids; every valid id is below this bound. */
+    public static final int ID_COUNT = 26 * 26 * 26;
+
+    /** Returned by {@link #pack} for anything that is not three ASCII letters. */
+    public static final int UNKNOWN = -1;
+
+    // Filled on first use; racing threads may both create a code, which is harmless for immutable strings
+    private static final String[] CODES = new String[ID_COUNT];
+
+    private final BitSet supported = new BitSet(ID_COUNT);
+
+    public CurrencyRegistry(SupportedCurrenciesConfig config) {
+        for (String code : config.getCurrencies()) {
+            int id = pack(code);
+            if (id == UNKNOWN) {
+                throw new IllegalStateException("Malformed currency code in configuration: " + code);
+            }
+            supported.set(id);
+        }
+    }
+
+    /**
+     * Packs a code into its id, ignoring surrounding whitespace and letter case.
+     *
+     * @return the id, or {@link #UNKNOWN} if the code is null or not three ASCII letters.
+     */
+    public static int pack(CharSequence code) {
+        if (code == null) {
+            return UNKNOWN;
+        }
+        int start = 0;
+        int end = code.length();
+        while (start < end && Character.isWhitespace(code.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(code.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start != 3) {
+            return UNKNOWN;
+        }
+        int id = 0;
+        for (int i = start; i < end; i++) {
+            int letter = (code.charAt(i) | 0x20) - 'a';
+            if (letter < 0 || letter >= 26) {
+                return UNKNOWN;
+            }
+            id = id * 26 + letter;
+        }
+        return id;
+    }
+
+    /**
+     * @return the canonical upper-case code of an id returned by {@link #pack}.
+     */
+    public static String codeOf(int id) {
+        String code = CODES[id];
+        if (code == null) {
+            code = new String(new char[]{
+                    (char) ('A' + id / (26 * 26)), (char) ('A' + id / 26 % 26), (char) ('A' + id % 26)});
+            CODES[id] = code;
+        }
+        return code;
+    }
+
+    public boolean isSupported(int id) {
+        return id >= 0 && id < ID_COUNT && supported.get(id);
+    }
+}
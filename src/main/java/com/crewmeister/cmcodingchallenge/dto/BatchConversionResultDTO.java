@@ -0,0 +1,27 @@
+package com.crewmeister.cmcodingchallenge.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one item of a batch conversion: either a result or an error message.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchConversionResultDTO {
+    private int index;
+    private ConversionResultDTO result;
+    private String error;
+
+    public static BatchConversionResultDTO success(int index, ConversionResultDTO result) {
+        return new BatchConversionResultDTO(index, result, null);
+    }
+
+    public static BatchConversionResultDTO failure(int index, String error) {
+        return new BatchConversionResultDTO(index, null, error);
+    }
+}
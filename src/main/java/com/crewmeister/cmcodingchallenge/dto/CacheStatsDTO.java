@@ -0,0 +1,20 @@
+package com.crewmeister.cmcodingchallenge.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDTO {
+    private String name;
+    private long hits;
+    private long misses;
+    private double hitRatio;
+
+    public static CacheStatsDTO of(String name, long hits, long misses) {
+        long requests = hits + misses;
+        return new CacheStatsDTO(name, hits, misses, requests == 0 ? 0.0 : (double) hits / requests);
+    }
+}
@@ -15,12 +15,20 @@ public class ConversionResultDTO {
     private BigDecimal originalAmount;
     private BigDecimal convertedToEUR;
     private LocalDate date;
+    // Date of the rate actually used; earlier than date when an as-of conversion fell back
+    private LocalDate rateDate;
 
     public ConversionResultDTO(String currency, BigDecimal originalAmount, BigDecimal convertedToEUR, LocalDate date) {
+        this(currency, originalAmount, convertedToEUR, date, date);
+    }
+
+    public ConversionResultDTO(String currency, BigDecimal originalAmount, BigDecimal convertedToEUR, LocalDate date,
+                               LocalDate rateDate) {
         this.currency = currency;
         this.originalAmount = originalAmount;
         this.convertedToEUR = convertedToEUR;
         this.date = date;
+        this.rateDate = rateDate;
     }
 
 }
@@ -0,0 +1,21 @@
+package com.crewmeister.cmcodingchallenge.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CrossConversionResultDTO {
+    private String from;
+    private String to;
+    private BigDecimal originalAmount;
+    private BigDecimal convertedAmount;
+    // Units of the target currency per unit of the source currency, triangulated via EUR
+    private BigDecimal rate;
+    private LocalDate date;
+}
@@ -0,0 +1,19 @@
+package com.crewmeister.cmcodingchallenge.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProviderStatsDTO {
+    private String provider;
+    private String circuitState;
+    private long calls;
+    private long failures;
+    private long rejected;
+    private long p50Millis;
+    private long p95Millis;
+    private long maxMillis;
+}
@@ -0,0 +1,22 @@
+package com.crewmeister.cmcodingchallenge.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateAggregateDTO {
+    private String currency;
+    // First and last dates with a rate inside the window
+    private LocalDate from;
+    private LocalDate to;
+    private int count;
+    private BigDecimal min;
+    private BigDecimal max;
+    private BigDecimal average;
+}
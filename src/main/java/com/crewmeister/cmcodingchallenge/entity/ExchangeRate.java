@@ -12,12 +12,19 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+// The unique constraint is backed by a (currency_code, date) index that serves point lookups,
+// per-currency range scans and upserts; per-date listings use the separate date index.
+@Table(name = "exchange_rate",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_exchange_rate_currency_date", columnNames = {"currency_code", "date"}),
+        indexes = @Index(name = "idx_exchange_rate_date", columnList = "date"))
 public class ExchangeRate {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(name = "currency_code")
     private String currencyCode;
     private BigDecimal exchangeRate;
 
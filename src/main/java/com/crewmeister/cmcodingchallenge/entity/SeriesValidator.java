@@ -0,0 +1,31 @@
+package com.crewmeister.cmcodingchallenge.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * HTTP validators a provider returned with the last successfully stored download of a series,
+ * sent back as If-None-Match / If-Modified-Since on the next fetch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "series_validator")
+public class SeriesValidator {
+
+    // Provider series id, e.g. BBEX3.D.USD.EUR.BB.AC.000
+    @Id
+    @Column(name = "series_key")
+    private String seriesKey;
+
+    private String etag;
+
+    private String lastModified;
+}
@@ -0,0 +1,165 @@
+package com.crewmeister.cmcodingchallenge.export;
+
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRateDTO;
+import com.crewmeister.cmcodingchallenge.index.ExchangeRateIndex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Compact, length-prefixed binary encoding of exchange rates.
+ *
+ * <pre>
+ * file    := magic "FXR1" | scale (1 byte) | block* | 0 (varint)
+ * block   := length (varint, bytes of the rest of the block, never 0)
+ *            | currency length (varint) | currency (UTF-8) | count (varint)
+ *            | count * (zigzag varint delta of epoch day, zigzag varint delta of scaled rate)
+ * </pre>
+ *
+ * Rates are integers scaled by {@link ExchangeRateIndex#RATE_SCALE}. Deltas restart at zero in
+ * every block, so a block can be decoded or skipped on its own. A currency spanning more than
+ * {@link #MAX_BLOCK_ROWS} rows is split across consecutive blocks.
+ */
+public final class BinaryRateFormat {
+
+    static final byte[] MAGIC = {'F', 'X', 'R', '1'};
+    static final int MAX_BLOCK_ROWS = 4096;
+
+    private BinaryRateFormat() {
+    }
+
+    /**
+     * Encodes rates into a stream. Rates of one currency should be adjacent and ordered by date for
+     * the deltas to stay small; any order is still decoded correctly.
+     */
+    public static final class Writer {
+
+        private final OutputStream out;
+        private final ByteArrayOutputStream rows = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        private String currency;
+        private int count;
+        private long previousDay;
+        private long previousRate;
+
+        public Writer(OutputStream out) throws IOException {
+            this.out = out;
+            out.write(MAGIC);
+            out.write(ExchangeRateIndex.RATE_SCALE);
+        }
+
+        public void write(String currencyCode, LocalDate date, long scaledRate) throws IOException {
+            if (!currencyCode.equals(currency) || count == MAX_BLOCK_ROWS) {
+                flushBlock();
+                currency = currencyCode;
+            }
+            long epochDay = date.toEpochDay();
+            writeVarLong(rows, zigZag(epochDay - previousDay));
+            writeVarLong(rows, zigZag(scaledRate - previousRate));
+            previousDay = epochDay;
+            previousRate = scaledRate;
+            count++;
+        }
+
+        /**
+         * Writes the pending block and the end marker. Does not close the underlying stream.
+         */
+        public void finish() throws IOException {
+            flushBlock();
+            writeVarLong(out, 0);
+            out.flush();
+        }
+
+        private void flushBlock() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            byte[] code = currency.getBytes(StandardCharsets.UTF_8);
+            header.reset();
+            writeVarLong(header, code.length);
+            header.write(code);
+            writeVarLong(header, count);
+            writeVarLong(out, header.size() + rows.size());
+            header.writeTo(out);
+            rows.writeTo(out);
+            rows.reset();
+            count = 0;
+            previousDay = 0;
+            previousRate = 0;
+        }
+    }
+
+    /**
+     * Decodes a stream written by {@link Writer}, passing every rate to the consumer in stream order.
+     *
+     * @return the number of rates decoded.
+     * @throws IOException if the stream is truncated or not in this format.
+     */
+    public static long read(InputStream in, Consumer<ExchangeRateDTO> consumer) throws IOException {
+        byte[] magic = in.readNBytes(MAGIC.length);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a binary exchange rate stream.");
+        }
+        int scale = readByte(in);
+        long total = 0;
+        for (long length = readVarLong(in); length != 0; length = readVarLong(in)) {
+            byte[] code = in.readNBytes((int) readVarLong(in));
+            String currency = new String(code, StandardCharsets.UTF_8);
+            long count = readVarLong(in);
+            long epochDay = 0;
+            long scaledRate = 0;
+            for (long i = 0; i < count; i++) {
+                epochDay += unZigZag(readVarLong(in));
+                scaledRate += unZigZag(readVarLong(in));
+                consumer.accept(new ExchangeRateDTO(currency,
+                        BigDecimal.valueOf(scaledRate, scale), LocalDate.ofEpochDay(epochDay)));
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Truncated binary exchange rate stream.");
+        }
+        return b;
+    }
+}
@@ -0,0 +1,102 @@
+package com.crewmeister.cmcodingchallenge.export;
+
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRateDTO;
+import com.crewmeister.cmcodingchallenge.index.ExchangeRateIndex;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes exchange rates to a response body row by row, so an export never materializes
+ * the full result in memory.
+ */
+@Component
+public class ExchangeRateExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter rateWriter;
+
+    public ExchangeRateExporter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // Flushing after every row would turn each rate into its own network write
+        this.rateWriter = objectMapper.writerFor(ExchangeRateDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Writes the rates in the given format.
+     */
+    public void write(ExportFormat format, Stream<ExchangeRateDTO> rates, OutputStream out) throws IOException {
+        switch (format) {
+            case CSV:
+                writeCsv(rates, out);
+                break;
+            case BINARY:
+                writeBinary(rates, out);
+                break;
+            default:
+                writeJson(rates, out);
+        }
+    }
+
+    /**
+     * Writes the rates as a JSON array with the same shape as the {@link ExchangeRateDTO} list responses.
+     */
+    public void writeJson(Stream<ExchangeRateDTO> rates, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            Iterator<ExchangeRateDTO> iterator = rates.iterator();
+            while (iterator.hasNext()) {
+                rateWriter.writeValue(generator, iterator.next());
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Writes the rates as CSV with a {@code currency,date,rate} header row.
+     */
+    public void writeCsv(Stream<ExchangeRateDTO> rates, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write("currency,date,rate\n");
+        Iterator<ExchangeRateDTO> iterator = rates.iterator();
+        while (iterator.hasNext()) {
+            ExchangeRateDTO rate = iterator.next();
+            writer.write(rate.getCurrency());
+            writer.write(',');
+            writer.write(rate.getDate().toString());
+            writer.write(',');
+            writer.write(rate.getRate().toPlainString());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the rates in {@link BinaryRateFormat}.
+     */
+    public void writeBinary(Stream<ExchangeRateDTO> rates, OutputStream out) throws IOException {
+        BinaryRateFormat.Writer writer = new BinaryRateFormat.Writer(new BufferedOutputStream(out, BUFFER_SIZE));
+        Iterator<ExchangeRateDTO> iterator = rates.iterator();
+        while (iterator.hasNext()) {
+            ExchangeRateDTO rate = iterator.next();
+            writer.write(rate.getCurrency(), rate.getDate(), ExchangeRateIndex.toScaled(rate.getRate()));
+        }
+        writer.finish();
+    }
+}
@@ -0,0 +1,60 @@
+package com.crewmeister.cmcodingchallenge.export;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * Representations the exchange-rate endpoints can be served in, chosen from the Accept header.
+ */
+public enum ExportFormat {
+
+    JSON(MediaType.APPLICATION_JSON, null),
+    CSV(new MediaType("text", "csv"), "csv"),
+    BINARY(new MediaType("application", "vnd.crewmeister.fx-rates"), "bin");
+
+    private final MediaType mediaType;
+    private final String etagSuffix;
+
+    ExportFormat(MediaType mediaType, String etagSuffix) {
+        this.mediaType = mediaType;
+        this.etagSuffix = etagSuffix;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return the suffix distinguishing this representation's entity tag, or null for the default (JSON).
+     */
+    public String getETagSuffix() {
+        return etagSuffix;
+    }
+
+    /**
+     * Picks the format the client prefers, honouring quality values. Falls back to JSON when the
+     * header is absent or names nothing we can produce, as the endpoints did before negotiation existed.
+     *
+     * @throws IllegalArgumentException if the header cannot be parsed.
+     */
+    public static ExportFormat fromAcceptHeader(String accept) {
+        if (!StringUtils.hasText(accept)) {
+            return JSON;
+        }
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType candidate : accepted) {
+            if (candidate.getQualityValue() == 0) {
+                continue;
+            }
+            for (ExportFormat format : values()) {
+                if (candidate.isCompatibleWith(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,30 @@
+package com.crewmeister.cmcodingchallenge.health;
+
+import com.crewmeister.cmcodingchallenge.service.WarmUpStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the startup warm-up as the {@code warmUp} health component. It is part of the
+ * readiness group, so instances only receive traffic once rates can be served; liveness does
+ * not depend on it.
+ */
+@Component
+public class WarmUpHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private WarmUpStatus warmUpStatus;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = warmUpStatus.isDataUsable() ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("phase", warmUpStatus.getPhase())
+                .withDetail("restoredRates", warmUpStatus.getRestoredRates())
+                .withDetail("storedRates", warmUpStatus.getStoredRates())
+                .withDetail("elapsedMs", warmUpStatus.getElapsed().toMillis())
+                .build();
+    }
+}
@@ -0,0 +1,84 @@
+package com.crewmeister.cmcodingchallenge.index;
+
+import com.crewmeister.cmcodingchallenge.currency.CurrencyRegistry;
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-memory index of the stored rate history, one {@link RateSeries} per currency.
+ *
+ * Series are replaced wholesale after each ingestion, so readers always see a complete,
+ * immutable series and lookups need no locking and no database round trip. Series are held in an
+ * array slot per {@link CurrencyRegistry} id, so a lookup is an array read rather than a string hash.
+ */
+@Component
+public class ExchangeRateIndex {
+
+    /** Number of decimal places kept for indexed rates. */
+    public static final int RATE_SCALE = 8;
+
+    /** Returned by lookups when no rate is indexed for the requested key. */
+    public static final long MISSING = -1L;
+
+    private final AtomicReferenceArray<RateSeries> seriesById = new AtomicReferenceArray<>(CurrencyRegistry.ID_COUNT);
+
+    /**
+     * Replaces the indexed history of a currency.
+     *
+     * @param currency the currency code.
+     * @param orderedRates the full history of the currency ordered by ascending date.
+     * @throws IllegalArgumentException if the code is not three letters.
+     */
+    public void replace(String currency, List<ExchangeRate> orderedRates) {
+        int id = CurrencyRegistry.pack(currency);
+        if (id == CurrencyRegistry.UNKNOWN) {
+            throw new IllegalArgumentException("Invalid currency code: " + currency);
+        }
+        seriesById.set(id, orderedRates.isEmpty() ? null : RateSeries.of(orderedRates));
+    }
+
+    /**
+     * @return the scaled rate of the currency on the given date, or {@link #MISSING}.
+     */
+    public long findScaledRate(String currency, LocalDate date) {
+        return findScaledRate(CurrencyRegistry.pack(currency), date);
+    }
+
+    /**
+     * @param currencyId the {@link CurrencyRegistry} id of the currency.
+     * @return the scaled rate of the currency on the given date, or {@link #MISSING}.
+     */
+    public long findScaledRate(int currencyId, LocalDate date) {
+        RateSeries series = getSeries(currencyId);
+        return series == null ? MISSING : series.rateOn((int) date.toEpochDay());
+    }
+
+    /**
+     * @return the indexed history of the currency, or null if none is indexed.
+     */
+    public RateSeries getSeries(String currency) {
+        return getSeries(CurrencyRegistry.pack(currency));
+    }
+
+    /**
+     * @param currencyId the {@link CurrencyRegistry} id of the currency.
+     * @return the indexed history of the currency, or null if none is indexed.
+     */
+    public RateSeries getSeries(int currencyId) {
+        return currencyId == CurrencyRegistry.UNKNOWN ? null : seriesById.get(currencyId);
+    }
+
+    public static long toScaled(BigDecimal rate) {
+        return rate.setScale(RATE_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toRate(long scaledRate) {
+        return BigDecimal.valueOf(scaledRate, RATE_SCALE);
+    }
+}
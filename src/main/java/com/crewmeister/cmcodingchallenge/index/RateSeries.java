@@ -0,0 +1,133 @@
+package com.crewmeister.cmcodingchallenge.index;
+
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable rate history of one currency held as two parallel primitive arrays: ascending
+ * epoch days and the matching rates scaled by {@link ExchangeRateIndex#RATE_SCALE}.
+ *
+ * Window aggregates are precomputed when the series is built: prefix sums answer sums in O(1),
+ * and bottom-up min/max segment trees answer extremes in O(log n), for any range of positions.
+ */
+public final class RateSeries {
+
+    private final int[] epochDays;
+    private final long[] scaledRates;
+    // prefixSums[i] is the sum of the first i rates
+    private final long[] prefixSums;
+    // Leaves at [n, 2n), parents at i / 2
+    private final long[] minTree;
+    private final long[] maxTree;
+
+    RateSeries(int[] epochDays, long[] scaledRates) {
+        int n = scaledRates.length;
+        this.epochDays = epochDays;
+        this.scaledRates = scaledRates;
+        this.prefixSums = new long[n + 1];
+        this.minTree = new long[2 * n];
+        this.maxTree = new long[2 * n];
+        for (int i = 0; i < n; i++) {
+            prefixSums[i + 1] = prefixSums[i] + scaledRates[i];
+            minTree[n + i] = scaledRates[i];
+            maxTree[n + i] = scaledRates[i];
+        }
+        for (int i = n - 1; i > 0; i--) {
+            minTree[i] = Math.min(minTree[2 * i], minTree[2 * i + 1]);
+            maxTree[i] = Math.max(maxTree[2 * i], maxTree[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Builds a series from rates ordered by ascending date.
+     */
+    public static RateSeries of(List<ExchangeRate> orderedRates) {
+        int[] epochDays = new int[orderedRates.size()];
+        long[] scaledRates = new long[orderedRates.size()];
+        for (int i = 0; i < epochDays.length; i++) {
+            ExchangeRate rate = orderedRates.get(i);
+            epochDays[i] = (int) rate.getDate().toEpochDay();
+            scaledRates[i] = ExchangeRateIndex.toScaled(rate.getExchangeRate());
+        }
+        return new RateSeries(epochDays, scaledRates);
+    }
+
+    public int size() {
+        return epochDays.length;
+    }
+
+    public int epochDayAt(int position) {
+        return epochDays[position];
+    }
+
+    public long rateAt(int position) {
+        return scaledRates[position];
+    }
+
+    /**
+     * @return the position of the latest day on or before the given day, or -1 if there is none.
+     */
+    public int floor(int epochDay) {
+        int i = Arrays.binarySearch(epochDays, epochDay);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * @return the position of the earliest day on or after the given day, or {@link #size()} if there is none.
+     */
+    public int ceiling(int epochDay) {
+        int i = Arrays.binarySearch(epochDays, epochDay);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /**
+     * @return the scaled rate on the given day, or {@link ExchangeRateIndex#MISSING}.
+     */
+    public long rateOn(int epochDay) {
+        int i = Arrays.binarySearch(epochDays, epochDay);
+        return i >= 0 ? scaledRates[i] : ExchangeRateIndex.MISSING;
+    }
+
+    /**
+     * @return the sum of the scaled rates at positions [from, to].
+     */
+    public long sum(int from, int to) {
+        return prefixSums[to + 1] - prefixSums[from];
+    }
+
+    /**
+     * @return the lowest scaled rate at positions [from, to].
+     */
+    public long min(int from, int to) {
+        int n = scaledRates.length;
+        long min = Long.MAX_VALUE;
+        for (int lo = from + n, hi = to + n + 1; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                min = Math.min(min, minTree[lo++]);
+            }
+            if ((hi & 1) == 1) {
+                min = Math.min(min, minTree[--hi]);
+            }
+        }
+        return min;
+    }
+
+    /**
+     * @return the highest scaled rate at positions [from, to].
+     */
+    public long max(int from, int to) {
+        int n = scaledRates.length;
+        long max = Long.MIN_VALUE;
+        for (int lo = from + n, hi = to + n + 1; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                max = Math.max(max, maxTree[lo++]);
+            }
+            if ((hi & 1) == 1) {
+                max = Math.max(max, maxTree[--hi]);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,63 @@
+package com.crewmeister.cmcodingchallenge.metrics;
+
+import com.crewmeister.cmcodingchallenge.cache.CrossRateCache;
+import com.crewmeister.cmcodingchallenge.cache.CurrencyListCache;
+import com.crewmeister.cmcodingchallenge.dto.CacheStatsDTO;
+import com.crewmeister.cmcodingchallenge.service.DatasetVersion;
+import com.crewmeister.cmcodingchallenge.service.ExchangeRateService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Gauges describing the served data set: stored row count, time since the data last changed and
+ * the in-memory caches' hit ratios. Values are read when the registry is scraped, from state kept in
+ * memory, so a scrape never queries the database.
+ */
+@Component
+public class ExchangeRateMetricsBinder implements MeterBinder {
+
+    @Autowired
+    private ExchangeRateService exchangeRateService;
+
+    @Autowired
+    private DatasetVersion datasetVersion;
+
+    @Autowired
+    private CurrencyListCache currencyListCache;
+
+    @Autowired
+    private CrossRateCache crossRateCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("fx.rates.stored", exchangeRateService, ExchangeRateService::getStoredRateCount)
+                .description("Exchange rates stored in the database, as counted by the last ingestion or restore")
+                .register(registry);
+        TimeGauge.builder("fx.dataset.age", datasetVersion, TimeUnit.MILLISECONDS,
+                        version -> System.currentTimeMillis() - version.getLastModified())
+                .description("Time since the served rates last changed")
+                .register(registry);
+        bindCache(registry, CurrencyListCache.NAME, currencyListCache::getStats);
+        bindCache(registry, CrossRateCache.NAME, crossRateCache::getStats);
+    }
+
+    private static void bindCache(MeterRegistry registry, String name, Supplier<CacheStatsDTO> stats) {
+        Gauge.builder("fx.cache.hit.ratio", stats, s -> s.get().getHitRatio())
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("fx.cache.requests", stats, s -> s.get().getHits())
+                .tags("cache", name, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("fx.cache.requests", stats, s -> s.get().getMisses())
+                .tags("cache", name, "result", "miss")
+                .register(registry);
+    }
+}
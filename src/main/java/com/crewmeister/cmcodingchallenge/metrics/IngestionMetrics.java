@@ -0,0 +1,90 @@
+package com.crewmeister.cmcodingchallenge.metrics;
+
+import com.crewmeister.cmcodingchallenge.constants.Provider;
+import com.crewmeister.cmcodingchallenge.strategy.FetchResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and counters of the ingestion path.
+ *
+ * <ul>
+ *     <li>{@code fx.ingestion.fetch} (provider, currency, outcome): one per-currency provider call</li>
+ *     <li>{@code fx.ingestion.bulk} (provider, outcome): one multi-currency provider download</li>
+ *     <li>{@code fx.ingestion.rows} (provider, currency): rates stored</li>
+ *     <li>{@code fx.ingestion.failures} (provider, currency): failed per-currency provider calls</li>
+ *     <li>{@code fx.ingestion.run}: one ingestion of all currencies</li>
+ * </ul>
+ *
+ * Outcomes are {@code stored}, {@code unchanged} (the provider answered 304) and {@code failure}.
+ * Only {@code fx.ingestion.bulk} and {@code fx.ingestion.run} are configured with percentile histograms;
+ * the per-currency fetch timer is kept plain, as buckets per currency would multiply the series count.
+ */
+@Component
+public class IngestionMetrics {
+
+    private final MeterRegistry registry;
+
+    public IngestionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordFetch(Provider provider, String currency, long nanos, FetchResult result) {
+        fetchTimer(provider, currency, outcome(result)).record(nanos, TimeUnit.NANOSECONDS);
+        countRows(provider, currency, result);
+    }
+
+    public void recordFetchFailure(Provider provider, String currency, long nanos) {
+        fetchTimer(provider, currency, "failure").record(nanos, TimeUnit.NANOSECONDS);
+        registry.counter("fx.ingestion.failures", "provider", provider.name(), "currency", currency).increment();
+    }
+
+    public void recordBulkFetch(Provider provider, long nanos, Map<String, FetchResult> results) {
+        bulkTimer(provider, results.values().stream().allMatch(FetchResult::isUnchanged) ? "unchanged" : "stored")
+                .record(nanos, TimeUnit.NANOSECONDS);
+        results.forEach((currency, result) -> countRows(provider, currency, result));
+    }
+
+    public void recordBulkFailure(Provider provider, long nanos) {
+        bulkTimer(provider, "failure").record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRun(long nanos) {
+        Timer.builder("fx.ingestion.run")
+                .description("Ingestion of all supported currencies")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void countRows(Provider provider, String currency, FetchResult result) {
+        if (result.getStored() > 0) {
+            registry.counter("fx.ingestion.rows", "provider", provider.name(), "currency", currency)
+                    .increment(result.getStored());
+        }
+    }
+
+    private Timer fetchTimer(Provider provider, String currency, String outcome) {
+        return Timer.builder("fx.ingestion.fetch")
+                .description("Per-currency fetch from a rate provider, including parsing and storage")
+                .tags("provider", provider.name(), "currency", currency, "outcome", outcome)
+                .register(registry);
+    }
+
+    private Timer bulkTimer(Provider provider, String outcome) {
+        return Timer.builder("fx.ingestion.bulk")
+                .description("Multi-currency download from a rate provider, including parsing and storage")
+                .tags("provider", provider.name(), "outcome", outcome)
+                .register(registry);
+    }
+
+    private static String outcome(FetchResult result) {
+        if (result.isNotServed()) {
+            return "not_served";
+        }
+        return result.isUnchanged() ? "unchanged" : "stored";
+    }
+}
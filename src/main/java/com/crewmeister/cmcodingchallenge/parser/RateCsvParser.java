@@ -0,0 +1,185 @@
+package com.crewmeister.cmcodingchallenge.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Single-pass parser for provider rate downloads (Bundesbank, ECB).
+ *
+ * Reads the stream through a fixed char buffer and tokenizes it on commas and tabs, dropping
+ * quotes. Rows starting with a {@code yyyy-MM-dd} date are data rows: each following field that
+ * holds a plain decimal is handed to the sink, anything else ({@code .}, {@code -}, {@code N/A},
+ * blanks) is skipped. All other rows are reported as headers. Dates and decimals are parsed
+ * straight from the buffer, so memory use does not depend on the length of the series.
+ *
+ * Instances are not thread-safe; create one per download.
+ */
+public class RateCsvParser {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private char[] line = new char[256];
+    private int lineLength;
+    private int[] fieldStarts = new int[8];
+    private int[] fieldEnds = new int[8];
+    private int fieldCount;
+    private int fieldStart;
+    private boolean inQuotes;
+
+    /**
+     * Parses the whole stream, emitting rows to the sink as they complete.
+     *
+     * @return the number of values passed to {@link RateRowSink#onRate}.
+     */
+    public long parse(Reader reader, RateRowSink sink) throws IOException {
+        long emitted = 0;
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                if (c == '"') {
+                    inQuotes = !inQuotes;
+                } else if (inQuotes) {
+                    append(c);
+                } else if (c == ',' || c == '\t') {
+                    endField();
+                } else if (c == '\n' || c == '\r') {
+                    emitted += endLine(sink);
+                } else {
+                    append(c);
+                }
+            }
+        }
+        return emitted + endLine(sink);
+    }
+
+    private void append(char c) {
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, lineLength * 2);
+        }
+        line[lineLength++] = c;
+    }
+
+    private void endField() {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = fieldStart;
+        fieldEnds[fieldCount] = lineLength;
+        fieldCount++;
+        fieldStart = lineLength;
+    }
+
+    private int endLine(RateRowSink sink) {
+        inQuotes = false;
+        if (lineLength == 0 && fieldCount == 0) {
+            return 0;
+        }
+        endField();
+        int emitted = 0;
+        LocalDate date = parseDate(fieldStarts[0], fieldEnds[0]);
+        if (date == null) {
+            sink.onHeader(headerFields());
+        } else {
+            for (int column = 1; column < fieldCount; column++) {
+                BigDecimal rate = parseDecimal(fieldStarts[column], fieldEnds[column]);
+                if (rate != null) {
+                    sink.onRate(column, date, rate);
+                    emitted++;
+                }
+            }
+        }
+        lineLength = 0;
+        fieldCount = 0;
+        fieldStart = 0;
+        return emitted;
+    }
+
+    private String[] headerFields() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = new String(line, fieldStarts[i], fieldEnds[i] - fieldStarts[i]).trim();
+        }
+        return fields;
+    }
+
+    private LocalDate parseDate(int start, int end) {
+        while (start < end && line[start] == ' ') {
+            start++;
+        }
+        while (end > start && line[end - 1] == ' ') {
+            end--;
+        }
+        if (end - start != 10 || line[start + 4] != '-' || line[start + 7] != '-') {
+            return null;
+        }
+        int year = digits(start, start + 4);
+        int month = digits(start + 5, start + 7);
+        int day = digits(start + 8, start + 10);
+        if (year < 0 || month < 0 || day < 0) {
+            return null;
+        }
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private int digits(int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private BigDecimal parseDecimal(int start, int end) {
+        while (start < end && line[start] == ' ') {
+            start++;
+        }
+        while (end > start && line[end - 1] == ' ') {
+            end--;
+        }
+        boolean negative = start < end && line[start] == '-';
+        int i = negative ? start + 1 : start;
+        long unscaled = 0;
+        int digitCount = 0;
+        int scale = 0;
+        boolean seenPoint = false;
+        for (; i < end; i++) {
+            char c = line[i];
+            if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else if (c >= '0' && c <= '9') {
+                if (++digitCount <= MAX_LONG_DIGITS) {
+                    unscaled = unscaled * 10 + (c - '0');
+                    if (seenPoint) {
+                        scale++;
+                    }
+                }
+            } else {
+                return null;
+            }
+        }
+        if (digitCount == 0) {
+            return null;
+        }
+        if (digitCount > MAX_LONG_DIGITS) {
+            // Too long for a long; the field is known to be a plain decimal at this point
+            return new BigDecimal(line, start, end - start);
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+}
@@ -0,0 +1,27 @@
+package com.crewmeister.cmcodingchallenge.parser;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Receives the rows produced by {@link RateCsvParser} as they are read.
+ */
+public interface RateRowSink {
+
+    /**
+     * Called for every row whose first field is not an ISO date, e.g. titles, units or column headers.
+     *
+     * @param fields the unquoted fields of the row.
+     */
+    default void onHeader(String[] fields) {
+    }
+
+    /**
+     * Called for every numeric value of a data row.
+     *
+     * @param column the field index of the value within the row (the date is column 0).
+     * @param date the date of the row.
+     * @param rate the parsed value.
+     */
+    void onRate(int column, LocalDate date, BigDecimal rate);
+}
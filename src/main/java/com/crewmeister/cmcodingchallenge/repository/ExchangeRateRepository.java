@@ -1,19 +1,38 @@
 package com.crewmeister.cmcodingchallenge.repository;
 
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRateDTO;
 import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long> {
+public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long>, ExchangeRateRepositoryCustom {
     List<ExchangeRate> findByDate(LocalDate date);
     Optional<ExchangeRate> findByCurrencyCodeAndDate(String currencyCode, LocalDate date);
+    List<ExchangeRate> findByCurrencyCodeOrderByDateAsc(String currencyCode);
+    List<ExchangeRate> findByCurrencyCodeAndDateBetweenOrderByDateAsc(String currencyCode, LocalDate from, LocalDate to);
+    Optional<ExchangeRate> findFirstByCurrencyCodeAndDateBetweenOrderByDateDesc(String currencyCode, LocalDate from, LocalDate to);
+    List<ExchangeRate> findByCurrencyCodeInAndDateIn(Collection<String> currencyCodes, Collection<LocalDate> dates);
     @Query("SELECT DISTINCT e.currencyCode FROM ExchangeRate e")
     List<String> findDistinctCurrencies();
+    @Query("SELECT MAX(e.date) FROM ExchangeRate e WHERE e.currencyCode = :currencyCode")
+    Optional<LocalDate> findLatestDateByCurrencyCode(@Param("currencyCode") String currencyCode);
+    // DTO projection over a fetch-size cursor: rows are never attached to the persistence context.
+    // Must be consumed inside a transaction and closed afterwards.
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.crewmeister.cmcodingchallenge.dto.ExchangeRateDTO(e.currencyCode, e.exchangeRate, e.date) " +
+            "FROM ExchangeRate e ORDER BY e.currencyCode, e.date")
+    Stream<ExchangeRateDTO> streamAll();
 }
 
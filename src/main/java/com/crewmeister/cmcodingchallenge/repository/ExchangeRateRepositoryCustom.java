@@ -0,0 +1,16 @@
+package com.crewmeister.cmcodingchallenge.repository;
+
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+
+import java.util.List;
+
+public interface ExchangeRateRepositoryCustom {
+    /**
+     * Inserts or updates the given rates keyed by (currency_code, date) using batched
+     * MERGE statements, so re-ingesting the same history never creates duplicate rows.
+     *
+     * @param rates the rates to write.
+     * @return the number of rows written.
+     */
+    int upsertAll(List<ExchangeRate> rates);
+}
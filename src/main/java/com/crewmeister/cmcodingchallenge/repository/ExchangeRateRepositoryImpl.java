@@ -0,0 +1,41 @@
+package com.crewmeister.cmcodingchallenge.repository;
+
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.List;
+
+public class ExchangeRateRepositoryImpl implements ExchangeRateRepositoryCustom {
+
+    // Standard SQL MERGE: one statement per row, sent to the database in JDBC batches.
+    private static final String UPSERT_SQL =
+            "MERGE INTO exchange_rate t " +
+            "USING (SELECT CAST(? AS VARCHAR(255)) AS currency_code, CAST(? AS DATE) AS date, " +
+            "CAST(? AS DECIMAL) AS exchange_rate) s " +
+            "ON t.currency_code = s.currency_code AND t.date = s.date " +
+            "WHEN MATCHED THEN UPDATE SET t.exchange_rate = s.exchange_rate " +
+            "WHEN NOT MATCHED THEN INSERT (currency_code, date, exchange_rate) " +
+            "VALUES (s.currency_code, s.date, s.exchange_rate)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${exchange-rate.upsert.batch-size:1000}")
+    private int batchSize;
+
+    @Override
+    public int upsertAll(List<ExchangeRate> rates) {
+        if (rates.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rates, batchSize, (ps, rate) -> {
+            ps.setString(1, rate.getCurrencyCode());
+            ps.setDate(2, Date.valueOf(rate.getDate()));
+            ps.setBigDecimal(3, rate.getExchangeRate());
+        });
+        return rates.size();
+    }
+}
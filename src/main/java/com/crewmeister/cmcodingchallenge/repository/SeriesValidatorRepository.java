@@ -0,0 +1,9 @@
+package com.crewmeister.cmcodingchallenge.repository;
+
+import com.crewmeister.cmcodingchallenge.entity.SeriesValidator;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SeriesValidatorRepository extends JpaRepository<SeriesValidator, String> {
+}
@@ -0,0 +1,168 @@
+package com.crewmeister.cmcodingchallenge.resilience;
+
+import com.crewmeister.cmcodingchallenge.dto.ProviderStatsDTO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker guarding calls to one provider.
+ *
+ * The outcomes of the last {@code windowSize} calls are kept; once at least {@code minimumCalls}
+ * were recorded, the breaker opens when the share of failed calls or of calls slower than the
+ * slow-call duration reaches its threshold. While open, calls are rejected without touching the
+ * provider. After the open duration a single trial call is let through (half-open): success
+ * closes the breaker, a failed or slow trial opens it again.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long slowCallNanos;
+    private final int slowCallRateThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private final LatencyStats latency;
+    private int next;
+    private int recorded;
+    private int failedInWindow;
+    private int slowInWindow;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long calls;
+    private long failures;
+    private long rejected;
+
+    /**
+     * @param failureRateThreshold percentage of failed calls in the window that opens the breaker.
+     * @param slowCallRateThreshold percentage of slow calls in the window that opens the breaker.
+     * @param clock source of {@link System#nanoTime()}-like readings.
+     */
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold,
+                          long slowCallNanos, int slowCallRateThreshold, long openNanos, LongSupplier clock) {
+        this.name = name;
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallNanos;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = openNanos;
+        this.clock = clock;
+        this.failed = new boolean[Math.max(1, windowSize)];
+        this.slow = new boolean[failed.length];
+        this.latency = new LatencyStats(256);
+    }
+
+    /**
+     * Asks for permission to call the provider. Every granted call must be reported through
+     * {@link #onSuccess} or {@link #onFailure}.
+     *
+     * @return false while the breaker is open, or while the half-open trial call is in flight.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openNanos) {
+                rejected++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                rejected++;
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess(long nanos) {
+        record(false, nanos);
+    }
+
+    public synchronized void onFailure(long nanos) {
+        record(true, nanos);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized ProviderStatsDTO getStats() {
+        return new ProviderStatsDTO(name, state.name(), calls, failures, rejected,
+                latency.percentileMillis(50), latency.percentileMillis(95), latency.maxMillis());
+    }
+
+    private void record(boolean failure, long nanos) {
+        calls++;
+        if (failure) {
+            failures++;
+        }
+        latency.record(nanos);
+        boolean tooSlow = nanos >= slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            if (failure || tooSlow) {
+                open();
+            } else {
+                close();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // Outcome of a call granted before the breaker opened
+            return;
+        }
+        if (recorded == failed.length) {
+            failedInWindow -= failed[next] ? 1 : 0;
+            slowInWindow -= slow[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failed[next] = failure;
+        slow[next] = tooSlow;
+        failedInWindow += failure ? 1 : 0;
+        slowInWindow += tooSlow ? 1 : 0;
+        next = (next + 1) % failed.length;
+
+        if (recorded >= minimumCalls && (failedInWindow * 100 >= failureRateThreshold * recorded
+                || slowInWindow * 100 >= slowCallRateThreshold * recorded)) {
+            open();
+        }
+    }
+
+    private void open() {
+        log.warn("Circuit breaker for provider {} opened ({} of {} recent calls failed, {} slow)",
+                name, failedInWindow, recorded, slowInWindow);
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        resetWindow();
+    }
+
+    private void close() {
+        log.info("Circuit breaker for provider {} closed", name);
+        state = State.CLOSED;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        next = 0;
+        recorded = 0;
+        failedInWindow = 0;
+        slowInWindow = 0;
+    }
+}
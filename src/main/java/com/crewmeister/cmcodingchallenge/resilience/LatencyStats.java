@@ -0,0 +1,48 @@
+package com.crewmeister.cmcodingchallenge.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies of the most recent calls to a provider, kept in a fixed ring buffer so percentiles
+ * reflect current behaviour rather than the whole uptime. Not thread-safe; guarded by the owner.
+ */
+class LatencyStats {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+    private long max;
+
+    LatencyStats(int capacity) {
+        this.samples = new long[Math.max(1, capacity)];
+    }
+
+    void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+        max = Math.max(max, nanos);
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return the latency in milliseconds below which the given share of recent calls completed, or 0 without calls.
+     */
+    long percentileMillis(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * size) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, Math.min(rank, size - 1))]);
+    }
+
+    /**
+     * @return the slowest call seen since startup, in milliseconds.
+     */
+    long maxMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(max);
+    }
+}
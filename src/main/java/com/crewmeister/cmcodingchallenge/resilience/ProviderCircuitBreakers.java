@@ -0,0 +1,56 @@
+package com.crewmeister.cmcodingchallenge.resilience;
+
+import com.crewmeister.cmcodingchallenge.constants.Provider;
+import com.crewmeister.cmcodingchallenge.dto.ProviderStatsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * One {@link CircuitBreaker} per provider, shared by all ingestion workers, so a failing or
+ * hanging provider is skipped for every currency rather than retried on each of them.
+ */
+@Component
+public class ProviderCircuitBreakers {
+
+    @Value("${exchange-rate.circuit-breaker.window-size:20}")
+    private int windowSize = 20;
+
+    @Value("${exchange-rate.circuit-breaker.minimum-calls:5}")
+    private int minimumCalls = 5;
+
+    @Value("${exchange-rate.circuit-breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold = 50;
+
+    @Value("${exchange-rate.circuit-breaker.slow-call-duration-ms:10000}")
+    private long slowCallDurationMs = 10_000;
+
+    @Value("${exchange-rate.circuit-breaker.slow-call-rate-threshold:80}")
+    private int slowCallRateThreshold = 80;
+
+    @Value("${exchange-rate.circuit-breaker.open-duration-ms:60000}")
+    private long openDurationMs = 60_000;
+
+    private final Map<Provider, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreaker get(Provider provider) {
+        return breakers.computeIfAbsent(provider, key -> new CircuitBreaker(key.name(), windowSize, minimumCalls,
+                failureRateThreshold, TimeUnit.MILLISECONDS.toNanos(slowCallDurationMs), slowCallRateThreshold,
+                TimeUnit.MILLISECONDS.toNanos(openDurationMs), System::nanoTime));
+    }
+
+    /**
+     * @return breaker state and latency statistics of every provider called so far.
+     */
+    public List<ProviderStatsDTO> getStats() {
+        return breakers.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> entry.getValue().getStats())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,48 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Buckets a date range is split into for rate aggregates.
+ */
+public enum AggregatePeriod {
+
+    /** The whole range as one bucket. */
+    ALL,
+    MONTH,
+    YEAR;
+
+    /**
+     * @param value the period name, case-insensitive; null means {@link #ALL}.
+     */
+    public static AggregatePeriod parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return ALL;
+        }
+        for (AggregatePeriod period : values()) {
+            if (period.name().equalsIgnoreCase(value.trim())) {
+                return period;
+            }
+        }
+        throw new IllegalArgumentException("Period must be one of all, month or year.");
+    }
+
+    /**
+     * @return the last day of the bucket containing the given date, capped at the given end.
+     */
+    LocalDate bucketEnd(LocalDate date, LocalDate end) {
+        LocalDate bucketEnd;
+        switch (this) {
+            case MONTH:
+                bucketEnd = date.with(TemporalAdjusters.lastDayOfMonth());
+                break;
+            case YEAR:
+                bucketEnd = date.with(TemporalAdjusters.lastDayOfYear());
+                break;
+            default:
+                bucketEnd = end;
+        }
+        return bucketEnd.isAfter(end) ? end : bucketEnd;
+    }
+}
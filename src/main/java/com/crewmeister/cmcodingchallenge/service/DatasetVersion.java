@@ -0,0 +1,60 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonically increasing version of the stored rate data. Ingestion bumps it whenever it
+ * writes rates, and the read endpoints derive their HTTP validators (ETag, Last-Modified) from it,
+ * so clients can revalidate without the server running any query.
+ */
+@Component
+public class DatasetVersion {
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastModified;
+
+    public DatasetVersion() {
+        bump();
+    }
+
+    /**
+     * Moves to a new version. Versions are seeded from the clock, so they also keep
+     * increasing across restarts.
+     */
+    public void bump() {
+        long now = System.currentTimeMillis();
+        version.accumulateAndGet(now, (current, time) -> Math.max(current + 1, time));
+        // HTTP dates have second precision
+        lastModified = now / 1000 * 1000;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return a weak entity tag for the current version.
+     */
+    public String getETag() {
+        return getETag(null);
+    }
+
+    /**
+     * @param variant distinguishes alternative representations of the same resource (e.g. "csv"),
+     *                or null for the default one.
+     * @return a weak entity tag for the current version of that representation. The tag is weak because
+     *         the server may compress the body: Tomcat skips compression for strong validators, as a gzip
+     *         encoding is not byte-identical to the representation they vouch for.
+     */
+    public String getETag(String variant) {
+        return variant == null
+                ? "W/\"v" + version.get() + "\""
+                : "W/\"v" + version.get() + "-" + variant + "\"";
+    }
+}
@@ -2,11 +2,13 @@ package com.crewmeister.cmcodingchallenge.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
-
 @Slf4j
 @Component
 public class ExchangeRateScheduler {
@@ -14,11 +16,61 @@ public class ExchangeRateScheduler {
     @Autowired
     private ExchangeRateService exchangeRateService;
 
-    /**At application startup, this method automatically fetches
-       exchange rates and stores them in the database. */
-    @PostConstruct
+    @Autowired
+    private WarmUpStatus warmUpStatus;
+
+    @Value("${exchange-rate.warm-up.enabled:true}")
+    private boolean warmUpEnabled = true;
+
+    /**At application startup, this method restores the last snapshot (if configured)
+       and then fetches exchange rates and stores them in the database; with a snapshot
+       only rates published since it was written are downloaded. It runs asynchronously
+       once the context is started, so neither startup nor liveness waits for the providers;
+       readiness follows {@link WarmUpStatus} instead, and stays down until rates are stored. */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
     public void runOnStartup() {
-        exchangeRateService.fetchAndStoreExchangeRatesForAllCurrencies();
+        if (!warmUpEnabled) {
+            warmUpStatus.skip();
+            return;
+        }
+        try {
+            warmUpStatus.enter(WarmUpStatus.Phase.RESTORING_SNAPSHOT);
+            warmUpStatus.restored(exchangeRateService.restoreFromSnapshot());
+        } catch (RuntimeException e) {
+            log.error("Snapshot restore failed: {}", e.getMessage());
+        }
+        ingestForWarmUp();
+    }
+
+    /**
+     * Retries the warm-up ingestion while the previous attempt left no rates in the store,
+     * e.g. because every provider was unreachable at startup. Readiness stays down meanwhile.
+     */
+    @Scheduled(initialDelayString = "${exchange-rate.warm-up.retry-delay-ms:60000}",
+            fixedDelayString = "${exchange-rate.warm-up.retry-delay-ms:60000}")
+    public void retryWarmUp() {
+        if (warmUpStatus.getPhase() != WarmUpStatus.Phase.WAITING_FOR_DATA) {
+            return;
+        }
+        log.info("No rates stored yet, retrying warm-up ingestion...");
+        ingestForWarmUp();
+    }
+
+    private void ingestForWarmUp() {
+        warmUpStatus.enter(WarmUpStatus.Phase.FETCHING);
+        try {
+            exchangeRateService.fetchAndStoreExchangeRatesForAllCurrencies();
+        } catch (RuntimeException e) {
+            log.error("Warm-up ingestion failed, serving the rates stored so far: {}", e.getMessage());
+        } finally {
+            warmUpStatus.finish(exchangeRateService.getStoredRateCount());
+            if (warmUpStatus.isDataUsable()) {
+                log.info("Warm-up finished in {} ms", warmUpStatus.getElapsed().toMillis());
+            } else {
+                log.warn("Warm-up ingestion stored no rates; staying not ready until a retry succeeds");
+            }
+        }
     }
 
     /**
@@ -1,45 +1,175 @@
 package com.crewmeister.cmcodingchallenge.service;
 
+import com.crewmeister.cmcodingchallenge.cache.CrossRateCache;
+import com.crewmeister.cmcodingchallenge.cache.CurrencyListCache;
+import com.crewmeister.cmcodingchallenge.client.ProviderStatusException;
 import com.crewmeister.cmcodingchallenge.config.SupportedCurrenciesConfig;
+import com.crewmeister.cmcodingchallenge.constants.Provider;
+import com.crewmeister.cmcodingchallenge.currency.CurrencyRegistry;
+import com.crewmeister.cmcodingchallenge.dto.BatchConversionResultDTO;
+import com.crewmeister.cmcodingchallenge.dto.CacheStatsDTO;
+import com.crewmeister.cmcodingchallenge.dto.ConversionRequestDTO;
 import com.crewmeister.cmcodingchallenge.dto.ConversionResultDTO;
+import com.crewmeister.cmcodingchallenge.dto.CrossConversionResultDTO;
 import com.crewmeister.cmcodingchallenge.dto.ExchangeRateDTO;
+import com.crewmeister.cmcodingchallenge.dto.ProviderStatsDTO;
+import com.crewmeister.cmcodingchallenge.dto.RateAggregateDTO;
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
 import com.crewmeister.cmcodingchallenge.exception.ResourceNotFoundException;
+import com.crewmeister.cmcodingchallenge.export.ExchangeRateExporter;
+import com.crewmeister.cmcodingchallenge.export.ExportFormat;
+import com.crewmeister.cmcodingchallenge.index.ExchangeRateIndex;
+import com.crewmeister.cmcodingchallenge.index.RateSeries;
+import com.crewmeister.cmcodingchallenge.metrics.IngestionMetrics;
 import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import com.crewmeister.cmcodingchallenge.resilience.CircuitBreaker;
+import com.crewmeister.cmcodingchallenge.resilience.ProviderCircuitBreakers;
+import com.crewmeister.cmcodingchallenge.snapshot.ExchangeRateSnapshot;
 import com.crewmeister.cmcodingchallenge.strategy.ExchangeRateFetchStrategy;
+import com.crewmeister.cmcodingchallenge.strategy.FetchResult;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class ExchangeRateService {
 
+    // Decimal places kept for triangulated cross rates
+    private static final int CROSS_RATE_SCALE = 10;
+
     @Autowired
     private ExchangeRateRepository exchangeRateRepository;
 
     @Autowired
     private SupportedCurrenciesConfig config;
 
+    @Autowired
+    private CurrencyRegistry currencyRegistry;
+
     @Autowired
     private List<ExchangeRateFetchStrategy> strategies;
 
+    @Autowired
+    private ExchangeRateIndex exchangeRateIndex;
+
+    @Autowired
+    private ExchangeRateExporter exchangeRateExporter;
+
+    @Autowired
+    private CurrencyListCache currencyListCache;
+
+    @Autowired
+    private CrossRateCache crossRateCache;
+
+    @Autowired
+    private DatasetVersion datasetVersion;
+
+    @Autowired
+    private ExchangeRateSnapshot exchangeRateSnapshot;
+
+    @Autowired
+    private ProviderCircuitBreakers circuitBreakers;
+
+    @Autowired
+    private IngestionMetrics ingestionMetrics;
+
+    @Value("${exchange-rate.convert.as-of-max-days:7}")
+    private int asOfMaxDays;
+
+    @Value("${exchange-rate.convert.max-batch-size:10000}")
+    private int maxBatchSize;
+
+    @Value("${exchange-rate.ingestion.concurrency:8}")
+    private int ingestionConcurrency;
+
+    @Value("${exchange-rate.hedging.delay-ms:0}")
+    private long hedgeDelayMs;
+
+    private ExecutorService ingestionExecutor;
+
+    private ExecutorService hedgeExecutor;
+
+    private final AtomicLong storedRateCount = new AtomicLong();
+
+    /**
+     * Starts the bounded worker pool used to ingest currencies in parallel.
+     * The pool size caps the number of concurrent provider downloads and DB writes.
+     * With hedging enabled, provider calls run on a separate pool so an ingestion worker can
+     * wait for the first of two racing providers.
+     */
+    @PostConstruct
+    public void startIngestionExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ingestionExecutor = Executors.newFixedThreadPool(Math.max(1, ingestionConcurrency), runnable -> {
+            Thread thread = new Thread(runnable, "fx-ingestion-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (hedgeDelayMs > 0) {
+            AtomicInteger hedgeThreadCount = new AtomicInteger();
+            hedgeExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "fx-provider-" + hedgeThreadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void stopIngestionExecutor() throws InterruptedException {
+        ingestionExecutor.shutdownNow();
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdownNow();
+        }
+        ingestionExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
     public List<String> getAllCurrencies(){
-        List<String> currencies = exchangeRateRepository.findDistinctCurrencies()
-                .stream()
-                .filter(currency -> currency != null && !currency.isBlank())
-                .collect(Collectors.toList());
+        List<String> currencies = currencyListCache.get(this::loadCurrencies);
 
         return Optional.of(currencies)
                 .filter(currency -> !currency.isEmpty())
                 .orElseThrow(()-> new ResourceNotFoundException("No currencies found."));
     }
 
+    private List<String> loadCurrencies() {
+        return exchangeRateRepository.findDistinctCurrencies()
+                .stream()
+                .filter(currency -> currency != null && !currency.isBlank())
+                .collect(Collectors.toList());
+    }
+
+    public List<CacheStatsDTO> getCacheStats() {
+        return List.of(currencyListCache.getStats(), crossRateCache.getStats());
+    }
+
+    public List<ProviderStatsDTO> getProviderStats() {
+        return circuitBreakers.getStats();
+    }
+
     public List<ExchangeRateDTO> getAllExchangeRates() {
         return Optional.of(exchangeRateRepository.findAll())
                 .filter(rate -> !rate.isEmpty())
@@ -50,13 +180,49 @@ public class ExchangeRateService {
                 .collect(Collectors.toList());
     }
 
-    public List<ExchangeRateDTO> getExchangeRatesForDate(LocalDate date) {
+    /**
+     * Fails fast with a not-found error before an export starts streaming a response.
+     */
+    public void ensureExchangeRatesExist() {
+        if (exchangeRateRepository.count() == 0) {
+            throw new ResourceNotFoundException("No exchange rates found.");
+        }
+    }
+
+    /**
+     * Streams all stored exchange rates in the given format straight from a database cursor to the output.
+     */
+    @Transactional(readOnly = true)
+    public void writeAllExchangeRates(ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<ExchangeRateDTO> rates = exchangeRateRepository.streamAll()) {
+            exchangeRateExporter.write(format, rates, out);
+        }
+    }
+
+    /**
+     * Writes the exchange rates of one date in the given format.
+     */
+    public void writeExchangeRates(List<ExchangeRateDTO> rates, ExportFormat format, OutputStream out) throws IOException {
+        exchangeRateExporter.write(format, rates.stream(), out);
+    }
+
+    /**
+     * Checks the arguments of {@link #getExchangeRatesForDate} without a query, so a request can be
+     * rejected before it is answered conditionally.
+     *
+     * @throws IllegalArgumentException if the date is missing or in the future.
+     */
+    public void validateDate(LocalDate date) {
         Optional.ofNullable(date)
                 .orElseThrow(() -> new IllegalArgumentException("Date must not be null."));
 
         if (date.isAfter(LocalDate.now())) {
             throw new IllegalArgumentException("Date cannot be in the future.");
         }
+    }
+
+    public List<ExchangeRateDTO> getExchangeRatesForDate(LocalDate date) {
+        validateDate(date);
         return Optional.ofNullable(exchangeRateRepository.findByDate(date))
                 .filter(rate -> !rate.isEmpty())
                 .orElseThrow(() -> new
@@ -66,13 +232,249 @@ public class ExchangeRateService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Checks the currency and date range of {@link #getExchangeRatesForCurrency} and
+     * {@link #getExchangeRateAggregates} without a query, so a request can be rejected before it is
+     * answered conditionally.
+     *
+     * @param from the first date, or null for the start of the history.
+     * @param to the last date, or null for today.
+     * @return the canonical currency code.
+     * @throws IllegalArgumentException if the currency is not supported or from is after to.
+     */
+    public String validateCurrencyRange(String currency, LocalDate from, LocalDate to) {
+        String currencyCode = validateCurrency(currency);
+        LocalDate start = from != null ? from : LocalDate.EPOCH;
+        LocalDate end = to != null ? to : LocalDate.now();
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'.");
+        }
+        return currencyCode;
+    }
+
+    /**
+     * Returns the rate history of one currency between two dates (inclusive) in date order. Served from a
+     * slice of the in-memory index, or from a single range scan on (currency, date) if nothing is indexed.
+     *
+     * @param from the first date, or null for the start of the history.
+     * @param to the last date, or null for today.
+     */
+    public List<ExchangeRateDTO> getExchangeRatesForCurrency(String currency, LocalDate from, LocalDate to) {
+        String currencyCode = validateCurrencyRange(currency, from, to);
+        LocalDate start = from != null ? from : LocalDate.EPOCH;
+        LocalDate end = to != null ? to : LocalDate.now();
+
+        List<ExchangeRateDTO> rates = new ArrayList<>();
+        RateSeries series = exchangeRateIndex.getSeries(currencyCode);
+        if (series != null) {
+            int last = series.floor((int) end.toEpochDay());
+            for (int i = series.ceiling((int) start.toEpochDay()); i <= last; i++) {
+                rates.add(new ExchangeRateDTO(currencyCode, withoutTrailingZeros(ExchangeRateIndex.toRate(series.rateAt(i))),
+                        LocalDate.ofEpochDay(series.epochDayAt(i))));
+            }
+        }
+        if (rates.isEmpty()) {
+            exchangeRateRepository.findByCurrencyCodeAndDateBetweenOrderByDateAsc(currencyCode, start, end)
+                    .forEach(e -> rates.add(new ExchangeRateDTO(e.getCurrencyCode(), e.getExchangeRate(), e.getDate())));
+        }
+        if (rates.isEmpty()) {
+            throw new ResourceNotFoundException("No exchange rates found for currency " + currencyCode
+                    + " between " + start + " and " + end);
+        }
+        return rates;
+    }
+
+    /**
+     * Computes the min, max and average rate of one currency per period bucket between two dates (inclusive).
+     * Every bucket is answered in O(log n) from the prefix sums and segment trees precomputed on the indexed
+     * series; a currency that is not indexed is loaded with a single range scan first.
+     *
+     * @param from the first date, or null for the start of the history.
+     * @param to the last date, or null for today.
+     * @param period all (default), month or year.
+     */
+    public List<RateAggregateDTO> getExchangeRateAggregates(String currency, LocalDate from, LocalDate to, String period) {
+        String currencyCode = validateCurrencyRange(currency, from, to);
+        AggregatePeriod aggregatePeriod = AggregatePeriod.parse(period);
+        LocalDate start = from != null ? from : LocalDate.EPOCH;
+        LocalDate end = to != null ? to : LocalDate.now();
+
+        List<RateAggregateDTO> aggregates = aggregate(currencyCode, exchangeRateIndex.getSeries(currencyCode),
+                start, end, aggregatePeriod);
+        if (aggregates.isEmpty()) {
+            List<ExchangeRate> stored = exchangeRateRepository.findByCurrencyCodeAndDateBetweenOrderByDateAsc(currencyCode, start, end);
+            if (!stored.isEmpty()) {
+                aggregates = aggregate(currencyCode, RateSeries.of(stored), start, end, aggregatePeriod);
+            }
+        }
+        if (aggregates.isEmpty()) {
+            throw new ResourceNotFoundException("No exchange rates found for currency " + currencyCode
+                    + " between " + start + " and " + end);
+        }
+        return aggregates;
+    }
+
+    private List<RateAggregateDTO> aggregate(String currencyCode, RateSeries series, LocalDate start, LocalDate end,
+                                             AggregatePeriod period) {
+        List<RateAggregateDTO> aggregates = new ArrayList<>();
+        if (series == null) {
+            return aggregates;
+        }
+        int last = series.floor((int) end.toEpochDay());
+        // Buckets start at the next position with data, so empty months or years are skipped without scanning
+        for (int first = series.ceiling((int) start.toEpochDay()); first <= last; ) {
+            LocalDate bucketEnd = period.bucketEnd(LocalDate.ofEpochDay(series.epochDayAt(first)), end);
+            int bucketLast = Math.min(last, series.floor((int) bucketEnd.toEpochDay()));
+            int count = bucketLast - first + 1;
+            BigDecimal average = ExchangeRateIndex.toRate(series.sum(first, bucketLast))
+                    .divide(BigDecimal.valueOf(count), ExchangeRateIndex.RATE_SCALE, RoundingMode.HALF_EVEN);
+            aggregates.add(new RateAggregateDTO(currencyCode,
+                    LocalDate.ofEpochDay(series.epochDayAt(first)),
+                    LocalDate.ofEpochDay(series.epochDayAt(bucketLast)),
+                    count,
+                    withoutTrailingZeros(ExchangeRateIndex.toRate(series.min(first, bucketLast))),
+                    withoutTrailingZeros(ExchangeRateIndex.toRate(series.max(first, bucketLast))),
+                    withoutTrailingZeros(average)));
+            first = bucketLast + 1;
+        }
+        return aggregates;
+    }
+
     public ConversionResultDTO convertAmountToEuro(BigDecimal amount, String currency, LocalDate date) {
+        String currencyCode = validateConversion(amount, currency, date);
+        return findRate(currencyCode, date)
+                .map(rate -> toConversionResult(currencyCode, amount, rate, date))
+                .orElseThrow(() -> new ResourceNotFoundException(rateNotFoundMessage(currency, date)));
+    }
+
+    /**
+     * Converts an amount between two currencies on a date by triangulating through their EUR rates.
+     * Cross rates are cached per date, so repeated conversions of a pair need no lookup or division.
+     */
+    public CrossConversionResultDTO convertAmount(BigDecimal amount, String from, String to, LocalDate date) {
+        String fromCode = validateConversion(amount, from, date);
+        Optional.ofNullable(to)
+                .filter(c -> !c.isBlank())
+                .orElseThrow(() -> new IllegalArgumentException("Target currency must not be null or blank."));
+        int fromId = CurrencyRegistry.pack(fromCode);
+        int toId = validateCurrencyId(to);
+        String toCode = CurrencyRegistry.codeOf(toId);
+
+        BigDecimal crossRate = fromId == toId ? BigDecimal.ONE
+                : crossRateCache.get(fromId, toId, date, () -> {
+                    // Rates are quoted as units per EUR: from -> EUR -> to
+                    BigDecimal fromRate = findEuroRate(fromCode, date);
+                    BigDecimal toRate = findEuroRate(toCode, date);
+                    return toRate.divide(fromRate, CROSS_RATE_SCALE, RoundingMode.HALF_EVEN);
+                });
+        BigDecimal converted = amount.multiply(crossRate).setScale(2, RoundingMode.HALF_DOWN);
+        return new CrossConversionResultDTO(fromCode, toCode, amount, converted, withoutTrailingZeros(crossRate), date);
+    }
+
+    private BigDecimal findEuroRate(String currencyCode, LocalDate date) {
+        if ("EUR".equals(currencyCode)) {
+            return BigDecimal.ONE;
+        }
+        return findRate(currencyCode, date)
+                .orElseThrow(() -> new ResourceNotFoundException(rateNotFoundMessage(currencyCode, date)));
+    }
+
+    /**
+     * Served from the in-memory index; the database is only consulted on an index miss.
+     */
+    private Optional<BigDecimal> findRate(String currencyCode, LocalDate date) {
+        long scaledRate = exchangeRateIndex.findScaledRate(currencyCode, date);
+        if (scaledRate != ExchangeRateIndex.MISSING) {
+            return Optional.of(ExchangeRateIndex.toRate(scaledRate));
+        }
+        return exchangeRateRepository.findByCurrencyCodeAndDate(currencyCode, date)
+                .map(ExchangeRate::getExchangeRate);
+    }
+
+    /**
+     * Converts many amounts to EUR in one call. Distinct (currency, date) keys are resolved once:
+     * from the in-memory index first, then all remaining keys with a single grouped query.
+     * Results keep the input order; invalid or unresolvable items carry an error instead of a result.
+     */
+    public List<BatchConversionResultDTO> convertBatch(List<ConversionRequestDTO> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one item.");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch must not contain more than " + maxBatchSize + " items.");
+        }
+
+        String[] currencyCodes = new String[requests.size()];
+        String[] errors = new String[requests.size()];
+        Map<String, Map<LocalDate, BigDecimal>> rates = new HashMap<>();
+        Map<String, Set<LocalDate>> unresolved = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ConversionRequestDTO request = requests.get(i);
+            if (request == null) {
+                errors[i] = "Item must not be null.";
+                continue;
+            }
+            try {
+                currencyCodes[i] = validateConversion(request.getAmount(), request.getCurrency(), request.getDate());
+            } catch (IllegalArgumentException e) {
+                errors[i] = e.getMessage();
+                continue;
+            }
+            Map<LocalDate, BigDecimal> ratesByDate = rates.computeIfAbsent(currencyCodes[i], code -> new HashMap<>());
+            if (!ratesByDate.containsKey(request.getDate())) {
+                long scaledRate = exchangeRateIndex.findScaledRate(currencyCodes[i], request.getDate());
+                if (scaledRate != ExchangeRateIndex.MISSING) {
+                    ratesByDate.put(request.getDate(), ExchangeRateIndex.toRate(scaledRate));
+                } else {
+                    unresolved.computeIfAbsent(currencyCodes[i], code -> new HashSet<>()).add(request.getDate());
+                }
+            }
+        }
+        resolveFromRepository(unresolved, rates);
+
+        List<BatchConversionResultDTO> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            ConversionRequestDTO request = requests.get(i);
+            BigDecimal rate = errors[i] == null ? rates.get(currencyCodes[i]).get(request.getDate()) : null;
+            if (rate != null) {
+                results.add(BatchConversionResultDTO.success(i,
+                        toConversionResult(currencyCodes[i], request.getAmount(), rate, request.getDate())));
+            } else {
+                results.add(BatchConversionResultDTO.failure(i, errors[i] != null ? errors[i]
+                        : rateNotFoundMessage(request.getCurrency(), request.getDate())));
+            }
+        }
+        return results;
+    }
+
+    private void resolveFromRepository(Map<String, Set<LocalDate>> unresolved,
+                                       Map<String, Map<LocalDate, BigDecimal>> rates) {
+        if (unresolved.isEmpty()) {
+            return;
+        }
+        Set<LocalDate> dates = unresolved.values().stream()
+                .flatMap(Set::stream)
+                .collect(Collectors.toSet());
+        for (ExchangeRate rate : exchangeRateRepository.findByCurrencyCodeInAndDateIn(unresolved.keySet(), dates)) {
+            // The IN/IN query may match pairs nobody asked for; only keep requested keys
+            if (unresolved.get(rate.getCurrencyCode()).contains(rate.getDate())) {
+                rates.get(rate.getCurrencyCode()).put(rate.getDate(), rate.getExchangeRate());
+            }
+        }
+    }
+
+    /**
+     * Validates a conversion request.
+     *
+     * @return the canonical (trimmed, upper-case) currency code.
+     */
+    private String validateConversion(BigDecimal amount, String currency, LocalDate date) {
         Optional.ofNullable(amount)
                 .filter(a -> a.compareTo(BigDecimal.ZERO) > 0)
                 .orElseThrow(() -> new IllegalArgumentException("Amount must be greater than zero."));
 
         Optional.ofNullable(currency)
-                .filter(c -> !c.trim().isEmpty())
+                .filter(c -> !c.isBlank())
                 .orElseThrow(() -> new IllegalArgumentException("Currency must not be null or blank."));
 
         Optional.ofNullable(date)
@@ -81,36 +483,359 @@ public class ExchangeRateService {
         if (date.isAfter(LocalDate.now())) {
             throw new IllegalArgumentException("Date cannot be in the future.");
         }
-        if(!config.getCurrencies().contains(currency.trim().toUpperCase())) {
+        return validateCurrency(currency);
+    }
+
+    /**
+     * @return the canonical (trimmed, upper-case) currency code.
+     */
+    private String validateCurrency(String currency) {
+        return CurrencyRegistry.codeOf(validateCurrencyId(currency));
+    }
+
+    /**
+     * @return the {@link CurrencyRegistry} id of the currency; checked with a single bit test.
+     */
+    private int validateCurrencyId(String currency) {
+        int id = CurrencyRegistry.pack(currency);
+        if (!currencyRegistry.isSupported(id)) {
             throw new IllegalArgumentException("Invalid currency code.");
         }
-        return exchangeRateRepository.findByCurrencyCodeAndDate(
-                currency.trim().toUpperCase(), date)
-                .map(rate -> {
-                    BigDecimal euro = amount.divide(rate.getExchangeRate(), 2, RoundingMode.HALF_DOWN);
-                    return new ConversionResultDTO(rate.getCurrencyCode(), amount, euro, date);
-                })
-                .orElseThrow(() -> new ResourceNotFoundException("Rate not found for currency " + currency + " on " + date));
+        return id;
+    }
+
+    /**
+     * Drops zero padding (e.g. of index rates carrying RATE_SCALE decimals) without switching to
+     * exponent notation, so 150.00000000 prints as 150 rather than 1.5E+2.
+     */
+    private static BigDecimal withoutTrailingZeros(BigDecimal value) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+    }
+
+    private String rateNotFoundMessage(String currency, LocalDate date) {
+        return "Rate not found for currency " + currency + " on " + date;
     }
 
+    /**
+     * Converts an amount to EUR using the latest rate on or before the given date, e.g. the previous
+     * business day for weekends and holidays. The rate may be at most as-of-max-days older than the date;
+     * the date of the rate used is returned as rateDate.
+     */
+    public ConversionResultDTO convertAmountToEuroAsOf(BigDecimal amount, String currency, LocalDate date) {
+        String currencyCode = validateConversion(amount, currency, date);
+        LocalDate earliest = date.minusDays(asOfMaxDays);
+        RateSeries series = exchangeRateIndex.getSeries(currencyCode);
+        if (series != null) {
+            int position = series.floor((int) date.toEpochDay());
+            if (position >= 0 && series.epochDayAt(position) >= earliest.toEpochDay()) {
+                return toConversionResult(currencyCode, amount, ExchangeRateIndex.toRate(series.rateAt(position)),
+                        date, LocalDate.ofEpochDay(series.epochDayAt(position)));
+            }
+        }
+        return exchangeRateRepository.findFirstByCurrencyCodeAndDateBetweenOrderByDateDesc(currencyCode, earliest, date)
+                .map(rate -> toConversionResult(rate.getCurrencyCode(), amount, rate.getExchangeRate(), date, rate.getDate()))
+                .orElseThrow(() -> new ResourceNotFoundException("Rate not found for currency " + currency
+                        + " on or up to " + asOfMaxDays + " days before " + date));
+    }
+
+    private ConversionResultDTO toConversionResult(String currency, BigDecimal amount, BigDecimal rate, LocalDate date) {
+        return toConversionResult(currency, amount, rate, date, date);
+    }
+
+    private ConversionResultDTO toConversionResult(String currency, BigDecimal amount, BigDecimal rate, LocalDate date,
+                                                   LocalDate rateDate) {
+        BigDecimal euro = amount.divide(rate, 2, RoundingMode.HALF_DOWN);
+        return new ConversionResultDTO(currency, amount, euro, date, rateDate);
+    }
+
+    /**
+     * Fetches and stores rates for all supported currencies. Currencies are processed
+     * concurrently on the ingestion pool; a failure for one currency does not affect the others.
+     * When the preferred provider serves several series per download, currencies are fetched in
+     * chunks of that size. Currencies a bulk download did not cover are offered to the next provider
+     * able to serve the rest of the chunk in one download, and finally fetched one by one.
+     */
     public void fetchAndStoreExchangeRatesForAllCurrencies() {
-        config.getCurrencies().stream()
+        long start = System.nanoTime();
+        AtomicInteger stored = new AtomicInteger();
+        AtomicInteger unchanged = new AtomicInteger();
+        List<String> currencies = config.getCurrencies().stream()
                 .filter(code -> !"EUR".equalsIgnoreCase(code))
-                .forEach(this::fetchAndStoreExchangeRates);
+                .collect(Collectors.toList());
+        int chunkSize = strategies.isEmpty() ? 1 : Math.max(1, strategies.get(0).getMaxBulkSize());
+        List<CompletableFuture<?>> tasks = new ArrayList<>();
+        for (int from = 0; from < currencies.size(); from += chunkSize) {
+            List<String> chunk = currencies.subList(from, Math.min(from + chunkSize, currencies.size()));
+            tasks.add(CompletableFuture.runAsync(() -> fetchChunk(chunk).forEach((code, result) -> {
+                stored.addAndGet(result.getStored());
+                if (result.isUnchanged()) {
+                    unchanged.incrementAndGet();
+                }
+            }), ingestionExecutor));
+        }
+
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        currencyListCache.put(loadCurrencies());
+        storedRateCount.set(exchangeRateRepository.count());
+        if (stored.get() > 0) {
+            datasetVersion.bump();
+        }
+        if (stored.get() > 0 || !exchangeRateSnapshot.exists()) {
+            writeSnapshot();
+        }
+        ingestionMetrics.recordRun(System.nanoTime() - start);
+        log.info("Ingested {} currencies in {} requests ({} rates stored, {} series unchanged) in {} ms",
+                currencies.size(), tasks.size(), stored.get(), unchanged.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
     }
 
-    public void fetchAndStoreExchangeRates(String currency) {
+    // A provider whose bulk download answered that it does not publish a currency is skipped by the
+    // per-currency fallback instead of being asked again
+    private Map<String, FetchResult> fetchChunk(List<String> chunk) {
+        Map<String, FetchResult> bulk = new HashMap<>();
+        Map<String, Set<Provider>> notServedBy = new HashMap<>();
         for (ExchangeRateFetchStrategy strategy : strategies) {
+            List<String> remaining = chunk.stream()
+                    .filter(code -> !bulk.containsKey(code))
+                    .collect(Collectors.toList());
+            if (remaining.size() < 2) {
+                break;
+            }
+            CircuitBreaker breaker = circuitBreakers.get(strategy.getProvider());
+            if (strategy.getMaxBulkSize() < remaining.size() || !breaker.tryAcquire()) {
+                continue;
+            }
+            long start = System.nanoTime();
             try {
-                strategy.fetchAndStoreExchangeRates(currency);
-                log.info("Saved rates for currency for the provider {} ", strategy.getProvider());
-                return;
+                Map<String, FetchResult> fetched = strategy.fetchAndStoreExchangeRatesInBulk(remaining);
+                long elapsed = System.nanoTime() - start;
+                breaker.onSuccess(elapsed);
+                ingestionMetrics.recordBulkFetch(strategy.getProvider(), elapsed, fetched);
+                for (String code : remaining) {
+                    FetchResult result = fetched.get(code);
+                    if (result == null) {
+                        continue;
+                    }
+                    if (result.isNotServed()) {
+                        notServedBy.computeIfAbsent(code, key -> EnumSet.noneOf(Provider.class)).add(strategy.getProvider());
+                    } else {
+                        bulk.put(code, result);
+                    }
+                }
+            } catch (Exception e) {
+                long elapsed = System.nanoTime() - start;
+                reportOutcome(breaker, e, elapsed);
+                ingestionMetrics.recordBulkFailure(strategy.getProvider(), elapsed);
+                log.warn("Bulk download failed for provider {} with error {}", strategy.getProvider(), e.getMessage());
+            }
+        }
+        Map<String, FetchResult> results = new LinkedHashMap<>();
+        for (String code : chunk) {
+            try {
+                FetchResult result = bulk.get(code);
+                results.put(code, applyFetchResult(code, result != null ? result
+                        : fetchFromFirstAvailableProvider(code, notServedBy.getOrDefault(code, Set.of()))));
+            } catch (Exception e) {
+                log.error("Ingestion failed for currency {}: {}", code, e.getMessage());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return the number of rates stored for the currency, or that its series was unchanged.
+     */
+    public FetchResult fetchAndStoreExchangeRates(String currency) {
+        return applyFetchResult(currency, fetchFromFirstAvailableProvider(currency, Set.of()));
+    }
+
+    private FetchResult applyFetchResult(String currency, FetchResult result) {
+        if (result.isUnchanged() && exchangeRateIndex.getSeries(currency) != null) {
+            // Nothing was written, so the indexed history is still current
+            return result;
+        }
+        refreshIndex(currency);
+        if (result.getStored() > 0) {
+            crossRateCache.clear();
+        }
+        return result;
+    }
+
+    // Tries the providers in order, skipping those whose circuit breaker is open, those known not
+    // to publish the currency and moving on from those answering that they do not. With hedging
+    // enabled, a provider that has not answered within the hedge delay is raced against the next
+    // available one and the first successful result wins; the slower call is left to finish in
+    // the background (its upserts are idempotent) and still counts towards its breaker.
+    private FetchResult fetchFromFirstAvailableProvider(String currency, Set<Provider> notServedBy) {
+        Deque<ExchangeRateFetchStrategy> candidates = strategies.stream()
+                .filter(strategy -> !notServedBy.contains(strategy.getProvider()))
+                .collect(Collectors.toCollection(ArrayDeque::new));
+        for (ExchangeRateFetchStrategy strategy = pollAvailable(candidates); strategy != null;
+             strategy = pollAvailable(candidates)) {
+            try {
+                FetchResult result = hedgeExecutor == null
+                        ? callProvider(strategy, currency)
+                        : fetchHedged(strategy, currency, candidates);
+                if (!result.isNotServed()) {
+                    return result;
+                }
+                log.debug("Provider {} does not publish currency {}", strategy.getProvider(), currency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             } catch (Exception e) {
                 log.warn("Strategy failed for provider {} with error {}", strategy.getProvider(),
-                        e.getMessage());
+                        e instanceof CompletionException && e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
             }
         }
         log.error("No provider could fetch rates for currency: {}", currency);
+        return FetchResult.stored(0);
+    }
+
+    private FetchResult fetchHedged(ExchangeRateFetchStrategy primary, String currency,
+                                    Deque<ExchangeRateFetchStrategy> candidates) throws InterruptedException {
+        CompletableFuture<FetchResult> first = CompletableFuture.supplyAsync(() -> callProvider(primary, currency), hedgeExecutor);
+        try {
+            return first.get(hedgeDelayMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            ExchangeRateFetchStrategy secondary = pollAvailable(candidates);
+            if (secondary == null) {
+                return first.join();
+            }
+            log.info("Provider {} slower than {} ms for currency {}, hedging with {}", primary.getProvider(),
+                    hedgeDelayMs, currency, secondary.getProvider());
+            CompletableFuture<FetchResult> second = CompletableFuture.supplyAsync(() -> callProvider(secondary, currency), hedgeExecutor);
+            return firstSuccessful(first, second).join();
+        }
+    }
+
+    private static CompletableFuture<FetchResult> firstSuccessful(CompletableFuture<FetchResult> first,
+                                                                  CompletableFuture<FetchResult> second) {
+        CompletableFuture<FetchResult> winner = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (CompletableFuture<FetchResult> attempt : List.of(first, second)) {
+            attempt.whenComplete((result, error) -> {
+                if (error == null) {
+                    winner.complete(result);
+                } else if (failed.incrementAndGet() == 2) {
+                    winner.completeExceptionally(error);
+                }
+            });
+        }
+        return winner;
+    }
+
+    private ExchangeRateFetchStrategy pollAvailable(Deque<ExchangeRateFetchStrategy> candidates) {
+        while (!candidates.isEmpty()) {
+            ExchangeRateFetchStrategy strategy = candidates.poll();
+            if (circuitBreakers.get(strategy.getProvider()).tryAcquire()) {
+                return strategy;
+            }
+            log.debug("Skipping provider {}: circuit breaker open", strategy.getProvider());
+        }
+        return null;
+    }
+
+    // Times the call and reports its outcome to the provider's circuit breaker and the ingestion metrics;
+    // see reportOutcome for which errors count against the breaker
+    private FetchResult callProvider(ExchangeRateFetchStrategy strategy, String currency) {
+        CircuitBreaker breaker = circuitBreakers.get(strategy.getProvider());
+        long start = System.nanoTime();
+        try {
+            FetchResult result = strategy.fetchAndStoreExchangeRates(currency);
+            long elapsed = System.nanoTime() - start;
+            breaker.onSuccess(elapsed);
+            ingestionMetrics.recordFetch(strategy.getProvider(), currency, elapsed, result);
+            log.info("Saved rates for currency for the provider {} ", strategy.getProvider());
+            return result;
+        } catch (RuntimeException e) {
+            long elapsed = System.nanoTime() - start;
+            reportOutcome(breaker, e, elapsed);
+            ingestionMetrics.recordFetchFailure(strategy.getProvider(), currency, elapsed);
+            throw e;
+        }
+    }
+
+    // Only errors showing the provider is unhealthy open its breaker: transport failures and timeouts
+    // (any I/O error) and 5xx answers. A rejected request such as a 404 for an unknown series, or an
+    // error on our side such as a failed database write, still completes the call as a success.
+    private static void reportOutcome(CircuitBreaker breaker, Throwable error, long nanos) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ProviderStatusException) {
+                if (((ProviderStatusException) cause).isServerError()) {
+                    breaker.onFailure(nanos);
+                } else {
+                    breaker.onSuccess(nanos);
+                }
+                return;
+            }
+            if (cause instanceof IOException) {
+                breaker.onFailure(nanos);
+                return;
+            }
+        }
+        breaker.onSuccess(nanos);
+    }
+
+    /**
+     * Restores the rates of the last snapshot, if one is configured and present, and makes them
+     * servable: the index, the currency list and the dataset version are refreshed. A later
+     * ingestion then only fetches rates newer than those in the snapshot.
+     *
+     * @return the number of rates restored.
+     */
+    public long restoreFromSnapshot() {
+        if (!exchangeRateSnapshot.isEnabled()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        long restored;
+        try {
+            restored = exchangeRateSnapshot.load();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not restore rates from snapshot, falling back to a full fetch: {}", e.getMessage());
+            return 0;
+        }
+        if (restored > 0) {
+            List<String> currencies = loadCurrencies();
+            currencies.forEach(this::refreshIndex);
+            currencyListCache.put(currencies);
+            storedRateCount.set(exchangeRateRepository.count());
+            datasetVersion.bump();
+        }
+        log.info("Restored {} rates from snapshot in {} ms", restored,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return restored;
+    }
+
+    private void writeSnapshot() {
+        if (!exchangeRateSnapshot.isEnabled()) {
+            return;
+        }
+        try {
+            long bytes = exchangeRateSnapshot.write();
+            log.info("Wrote rate snapshot ({} bytes)", bytes);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write rate snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of stored rates as of the last ingestion run or snapshot restore, counted once
+     * per run so that readers such as metrics scrapes need no query.
+     */
+    public long getStoredRateCount() {
+        return storedRateCount.get();
+    }
+
+    /**
+     * Reloads the indexed history of a currency from the database.
+     */
+    public void refreshIndex(String currency) {
+        exchangeRateIndex.replace(currency, exchangeRateRepository.findByCurrencyCodeOrderByDateAsc(currency));
     }
 }
 
@@ -0,0 +1,103 @@
+package com.crewmeister.cmcodingchallenge.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Progress of the startup warm-up (snapshot restore, then ingestion), which runs after the
+ * context has started. The data is usable as soon as a non-empty snapshot was restored, or
+ * otherwise once an ingestion has left rates in the store. An ingestion that ends with an empty
+ * store leaves the warm-up {@link Phase#WAITING_FOR_DATA} until a retry stores some.
+ */
+@Component
+public class WarmUpStatus {
+
+    public enum Phase {
+        PENDING,
+        RESTORING_SNAPSHOT,
+        FETCHING,
+        WAITING_FOR_DATA,
+        COMPLETED
+    }
+
+    private volatile Phase phase = Phase.PENDING;
+    private volatile boolean dataUsable;
+    private volatile long restoredRates;
+    private volatile long storedRates;
+    private volatile Instant startedAt;
+    private volatile Instant usableAt;
+
+    public void enter(Phase phase) {
+        if (startedAt == null) {
+            startedAt = Instant.now();
+        }
+        this.phase = phase;
+    }
+
+    public void restored(long rates) {
+        restoredRates = rates;
+        if (rates > 0) {
+            markDataUsable();
+        }
+    }
+
+    /**
+     * Ends an ingestion attempt of the warm-up.
+     *
+     * @param storedRates the number of rates in the store afterwards.
+     */
+    public void finish(long storedRates) {
+        this.storedRates = storedRates;
+        if (storedRates > 0 || dataUsable) {
+            enter(Phase.COMPLETED);
+            markDataUsable();
+        } else {
+            enter(Phase.WAITING_FOR_DATA);
+        }
+    }
+
+    /**
+     * Ends a warm-up that is disabled by configuration; readiness then does not wait for data.
+     */
+    public void skip() {
+        enter(Phase.COMPLETED);
+        markDataUsable();
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public boolean isDataUsable() {
+        return dataUsable;
+    }
+
+    public long getRestoredRates() {
+        return restoredRates;
+    }
+
+    public long getStoredRates() {
+        return storedRates;
+    }
+
+    /**
+     * @return how long the warm-up took until the data became usable, or has been running so far.
+     */
+    public Duration getElapsed() {
+        Instant start = startedAt;
+        if (start == null) {
+            return Duration.ZERO;
+        }
+        Instant end = usableAt;
+        return Duration.between(start, end != null ? end : Instant.now());
+    }
+
+    private void markDataUsable() {
+        if (!dataUsable) {
+            usableAt = Instant.now();
+            dataUsable = true;
+        }
+    }
+}
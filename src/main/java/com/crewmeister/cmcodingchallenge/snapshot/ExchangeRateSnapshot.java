@@ -0,0 +1,98 @@
+package com.crewmeister.cmcodingchallenge.snapshot;
+
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRateDTO;
+import com.crewmeister.cmcodingchallenge.export.BinaryRateFormat;
+import com.crewmeister.cmcodingchallenge.export.ExchangeRateExporter;
+import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import com.crewmeister.cmcodingchallenge.strategy.ExchangeRateBatchWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.Stream;
+
+/**
+ * On-disk copy of all stored rates in {@link BinaryRateFormat}, written after ingestion and loaded at boot,
+ * so a fresh instance (e.g. with an in-memory database) can serve the full history without re-downloading it.
+ * Disabled unless exchange-rate.snapshot.path is set.
+ */
+@Component
+@Slf4j
+public class ExchangeRateSnapshot {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @Autowired
+    private ExchangeRateExporter exchangeRateExporter;
+
+    @Value("${exchange-rate.snapshot.path:}")
+    private String path;
+
+    @Value("${exchange-rate.upsert.batch-size:1000}")
+    private int batchSize;
+
+    public boolean isEnabled() {
+        return StringUtils.hasText(path);
+    }
+
+    public boolean exists() {
+        return isEnabled() && Files.isRegularFile(Paths.get(path));
+    }
+
+    /**
+     * Writes all stored rates to the snapshot file. The file is written under a temporary name and
+     * then moved into place, so a crash mid-write never leaves a truncated snapshot behind.
+     *
+     * @return the number of bytes written.
+     */
+    @Transactional(readOnly = true)
+    public long write() throws IOException {
+        Path target = Paths.get(path).toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE);
+                 Stream<ExchangeRateDTO> rates = exchangeRateRepository.streamAll()) {
+                exchangeRateExporter.writeBinary(rates, out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return Files.size(target);
+    }
+
+    /**
+     * Streams the snapshot file into the database in upsert batches, without materializing it in memory.
+     *
+     * @return the number of rates loaded, or 0 if there is no snapshot.
+     * @throws IOException if the file cannot be read or is not a valid snapshot; rates read before
+     *                     the failure stay stored.
+     */
+    @Transactional
+    public long load() throws IOException {
+        if (!exists()) {
+            return 0;
+        }
+        ExchangeRateBatchWriter writer = new ExchangeRateBatchWriter(exchangeRateRepository, batchSize);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(path)), BUFFER_SIZE)) {
+            BinaryRateFormat.read(in, rate -> writer.add(rate.getCurrency(), rate.getDate(), rate.getRate()));
+        }
+        return writer.flush();
+    }
+}
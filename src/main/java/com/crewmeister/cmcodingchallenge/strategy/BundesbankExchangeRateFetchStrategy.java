@@ -1,77 +1,222 @@
 package com.crewmeister.cmcodingchallenge.strategy;
 
+import com.crewmeister.cmcodingchallenge.client.ProviderDownloadClient;
+import com.crewmeister.cmcodingchallenge.client.ProviderResponse;
+import com.crewmeister.cmcodingchallenge.client.ProviderStatusException;
 import com.crewmeister.cmcodingchallenge.constants.Provider;
-import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.entity.SeriesValidator;
+import com.crewmeister.cmcodingchallenge.parser.RateCsvParser;
+import com.crewmeister.cmcodingchallenge.parser.RateRowSink;
 import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import com.crewmeister.cmcodingchallenge.repository.SeriesValidatorRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.UUID;
 
 @Component
+@Order(1)
 @Slf4j
 public class BundesbankExchangeRateFetchStrategy implements ExchangeRateFetchStrategy{
 
+    // Single-series downloads carry the value in the field right after the date
+    private static final int VALUE_COLUMN = 1;
+
     @Autowired
     private ExchangeRateRepository exchangeRateRepository;
 
+    @Autowired
+    private SeriesValidatorRepository seriesValidatorRepository;
+
+    @Autowired
+    private ProviderDownloadClient downloadClient;
+
     @Value("${bundesbank.url.template}")
     private String urlTemplate;
 
     @Value("${bundesbank.tsId.template}")
     private String tsIdTemplate;
 
-    //Logic to fetch and parse CSV from Bundesbank
+    @Value("${exchange-rate.upsert.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${bundesbank.bulk.max-series:1}")
+    private int maxBulkSeries = 1;
+
+    //Logic to fetch and parse CSV from Bundesbank. Only observations newer than
+    //the latest stored date for the currency are persisted (delta ingestion).
+    //Once a series is stored, later fetches are conditional on its validators;
+    //a 304 skips download, parsing and persistence. A 404 means Bundesbank does not
+    //publish the series and is answered as not served; any other failed download is
+    //thrown as UncheckedIOException so the caller can count it and fall back.
     @Override
     @Transactional
-    public void fetchAndStoreExchangeRates(String currency) {
+    public FetchResult fetchAndStoreExchangeRates(String currency) {
         var tsId = buildTsId(currency);
         var url = buildUrl(tsId);
+        LocalDate latestStored = exchangeRateRepository.findLatestDateByCurrencyCode(currency).orElse(null);
+        // Validators are only trusted while the series' rates are still stored
+        SeriesValidator validator = latestStored == null ? null
+                : seriesValidatorRepository.findById(tsId).orElse(null);
+
+        log.info("Fetching rates for currency: {} newer than {}", currency, latestStored);
 
-        log.info("Fetching rates for currency: {}", currency);
+        ProviderResponse response;
+        try {
+            response = download(url, validator);
+        } catch (ProviderStatusException e) {
+            if (!e.isNotFound()) {
+                throw new UncheckedIOException("Failed to download CSV for " + currency, e);
+            }
+            log.warn("Bundesbank has no series {} for currency {}", tsId, currency);
+            return FetchResult.notServed();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to download CSV for " + currency, e);
+        }
+        if (response.isNotModified()) {
+            log.info("Rates for currency {} unchanged since last fetch", currency);
+            return FetchResult.unchanged();
+        }
 
-        try (InputStream inputStream = openUrlStream(url);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+        try (InputStream inputStream = response.getBody();
+             Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
 
-            List<String[]> dataLines = reader.lines()
-                    .skip(5) // Skip header/meta
-                    .map(line -> line.replace("\"", "").split("\t|,"))
-                    .filter(parts -> parts.length >= 2)
-                    .collect(Collectors.toList());
+            ExchangeRateBatchWriter writer = new ExchangeRateBatchWriter(exchangeRateRepository, batchSize);
+            long parsed = new RateCsvParser().parse(reader, (column, date, rate) -> {
+                if (column == VALUE_COLUMN && (latestStored == null || date.isAfter(latestStored))) {
+                    writer.add(currency, date, rate);
+                }
+            });
+            int saved = writer.flush();
 
-            if (dataLines.stream().noneMatch(parts -> isValidRate(parts[1]))) {
+            if (parsed == 0) {
                 log.warn("Currency {} is not supported based on rate data", currency);
-                return;
+            } else {
+                storeValidator(tsId, response);
+                if (saved > 0) {
+                    log.info("Saved {} rates for currency {}", saved, currency);
+                } else {
+                    log.info("No rates newer than {} for currency {}", latestStored, currency);
+                }
             }
+            return FetchResult.stored(saved);
 
-            List<ExchangeRate> rates = dataLines.stream()
-                    .map(parts -> parseExchangeRate(parts, currency))
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to download or parse CSV for " + currency, e);
+        }
+    }
 
-            if (!rates.isEmpty()) {
-                exchangeRateRepository.saveAll(rates);
-                log.info("Saved {} rates for currency {}", rates.size(), currency);
-            } else {
-                log.warn("No valid exchange rates found for currency {}", currency);
+    @Override
+    public int getMaxBulkSize() {
+        return Math.max(1, maxBulkSeries);
+    }
+
+    //Downloads several series in one request (the download accepts repeated tsId
+    //parameters) and parses the multi-column result in one pass. The column of each
+    //series is taken from the header row naming the series ids; its _FLAGS column is
+    //ignored. The download is conditional on the validators stored for exactly this
+    //set of series, and only while every one of them has stored rates.
+    @Override
+    @Transactional
+    public Map<String, FetchResult> fetchAndStoreExchangeRatesInBulk(List<String> currencies) {
+        Map<String, String> currencyBySeries = new LinkedHashMap<>();
+        Map<String, LocalDate> latestStored = new HashMap<>();
+        for (String currency : currencies) {
+            currencyBySeries.put(buildTsId(currency), currency);
+            exchangeRateRepository.findLatestDateByCurrencyCode(currency)
+                    .ifPresent(date -> latestStored.put(currency, date));
+        }
+        String bulkKey = buildBulkKey(currencyBySeries.keySet());
+        String url = buildUrl(String.join("&tsId=", currencyBySeries.keySet()));
+        SeriesValidator validator = latestStored.size() < currencies.size() ? null
+                : seriesValidatorRepository.findById(bulkKey).orElse(null);
+
+        log.info("Fetching rates for {} currencies in one download", currencies.size());
+
+        Map<String, FetchResult> results = new LinkedHashMap<>();
+        ProviderResponse response;
+        try {
+            response = download(url, validator);
+        } catch (ProviderStatusException e) {
+            if (!e.isNotFound()) {
+                throw new UncheckedIOException("Failed to download CSV for " + currencies, e);
             }
+            // Which of the series is unknown is not reported, so each currency is fetched on its own
+            log.warn("Bundesbank has no series for some of the currencies {}", currencies);
+            return results;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to download CSV for " + currencies, e);
+        }
+        if (response.isNotModified()) {
+            log.info("Rates for currencies {} unchanged since last fetch", currencies);
+            currencies.forEach(currency -> results.put(currency, FetchResult.unchanged()));
+            return results;
+        }
+
+        try (InputStream inputStream = response.getBody();
+             Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+
+            Map<Integer, String> currencyByColumn = new HashMap<>();
+            Map<String, Integer> saved = new HashMap<>();
+            ExchangeRateBatchWriter writer = new ExchangeRateBatchWriter(exchangeRateRepository, batchSize);
+            new RateCsvParser().parse(reader, new RateRowSink() {
+                @Override
+                public void onHeader(String[] fields) {
+                    for (int column = 1; column < fields.length; column++) {
+                        String currency = currencyBySeries.get(fields[column]);
+                        if (currency != null) {
+                            currencyByColumn.put(column, currency);
+                        }
+                    }
+                }
+
+                @Override
+                public void onRate(int column, LocalDate date, BigDecimal rate) {
+                    String currency = currencyByColumn.get(column);
+                    if (currency == null) {
+                        return;
+                    }
+                    LocalDate latest = latestStored.get(currency);
+                    if (latest == null || date.isAfter(latest)) {
+                        writer.add(currency, date, rate);
+                        saved.merge(currency, 1, Integer::sum);
+                    }
+                }
+            });
+            writer.flush();
+
+            for (String currency : currencyByColumn.values()) {
+                results.put(currency, FetchResult.stored(saved.getOrDefault(currency, 0)));
+            }
+            if (results.size() < currencies.size()) {
+                log.warn("Bulk download did not contain series for some of the currencies {}", currencies);
+            }
+            if (!currencyByColumn.isEmpty()) {
+                storeValidator(bulkKey, response);
+            }
+            log.info("Saved {} rates for {} currencies", saved.values().stream().mapToInt(Integer::intValue).sum(),
+                    results.size());
+            return results;
 
         } catch (IOException e) {
-            log.error("Failed to download or parse CSV for {}: {}", currency, e.getMessage());
+            throw new UncheckedIOException("Failed to download or parse CSV for " + currencies, e);
         }
     }
 
@@ -80,42 +225,33 @@ public class BundesbankExchangeRateFetchStrategy implements ExchangeRateFetchStr
         return Provider.BUNDESBANK;
     }
 
-    private ExchangeRate parseExchangeRate(String[] parts, String currency) {
-        try {
-            LocalDate date = LocalDate.parse(parts[0].trim());
-            BigDecimal rate = parseRate(parts[1].trim());
-
-            ExchangeRate exchangeRate = new ExchangeRate();
-            exchangeRate.setCurrencyCode(currency);
-            exchangeRate.setDate(date);
-            exchangeRate.setExchangeRate(rate);
-
-            return exchangeRate;
-        } catch (Exception e) {
-            log.warn("Skipping malformed line: {} — {}", Arrays.toString(parts), e.getMessage());
-            return null;
-        }
+    public ProviderResponse download(String url, SeriesValidator validator) throws IOException {
+        return validator == null
+                ? downloadClient.download(url, null, null)
+                : downloadClient.download(url, validator.getEtag(), validator.getLastModified());
     }
 
-    public InputStream openUrlStream(String url) throws IOException {
-        return new URL(url).openStream();
+    // deleteById throws for a missing row, which would roll back the rates just stored
+    private void storeValidator(String tsId, ProviderResponse response) {
+        if (response.getEtag() == null && response.getLastModified() == null) {
+            if (seriesValidatorRepository.existsById(tsId)) {
+                seriesValidatorRepository.deleteById(tsId);
+            }
+        } else {
+            seriesValidatorRepository.save(new SeriesValidator(tsId, response.getEtag(), response.getLastModified()));
+        }
     }
 
     private String buildTsId(String currency) {
         return String.format(tsIdTemplate, currency);
     }
 
-    private String buildUrl(String tsId) {
-        return String.format(urlTemplate, tsId);
-    }
-
-    private BigDecimal parseRate(String rateStr) {
-        return (rateStr == null || rateStr.isBlank() || rateStr.equals(".") || rateStr.equals("-"))
-                ? BigDecimal.ZERO
-                : new BigDecimal(rateStr.replace(",", "."));
+    // Validators of a bulk download are stored under a fixed-length key derived from its series ids
+    private String buildBulkKey(Collection<String> tsIds) {
+        return "BULK-" + UUID.nameUUIDFromBytes(String.join(",", tsIds).getBytes(StandardCharsets.UTF_8));
     }
 
-    private boolean isValidRate(String rateStr) {
-        return rateStr != null && !rateStr.isBlank() && !rateStr.equals(".") && !rateStr.equals("-");
+    private String buildUrl(String tsId) {
+        return String.format(urlTemplate, tsId);
     }
 }
@@ -0,0 +1,173 @@
+package com.crewmeister.cmcodingchallenge.strategy;
+
+import com.crewmeister.cmcodingchallenge.client.ProviderDownloadClient;
+import com.crewmeister.cmcodingchallenge.client.ProviderResponse;
+import com.crewmeister.cmcodingchallenge.constants.Provider;
+import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+@Component
+@Order(2)
+@Slf4j
+public class EcbExchangeRateFetchStrategy implements ExchangeRateFetchStrategy {
+
+    @Autowired
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @Autowired
+    private ProviderDownloadClient downloadClient;
+
+    @Value("${ecb.url:https://www.ecb.europa.eu/stats/eurofxref/eurofxref-hist.zip}")
+    private String url;
+
+    @Value("${exchange-rate.upsert.batch-size:1000}")
+    private int batchSize;
+
+    // How long a parsed history is reused without asking the ECB whether its file changed
+    @Value("${ecb.history.max-age-ms:600000}")
+    private long historyMaxAgeMs;
+
+    private final Object historyLock = new Object();
+    private volatile EcbHistory history;
+    private volatile long historyCheckedAt;
+
+    //The ECB publishes one file holding the full history of every currency it quotes
+    //(foreign currency per EUR, as Bundesbank BBEX3), so a single currency is served
+    //from the same parsed history as a bulk fetch. Currencies missing from the last
+    //parsed file are answered as not served without any download.
+    @Override
+    @Transactional
+    public FetchResult fetchAndStoreExchangeRates(String currency) {
+        EcbHistory known = history;
+        if (known != null && !known.contains(currency)) {
+            return FetchResult.notServed();
+        }
+        return fetchAndStoreExchangeRatesInBulk(List.of(currency))
+                .getOrDefault(currency, FetchResult.notServed());
+    }
+
+    @Override
+    public int getMaxBulkSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    //Stores the observations of the requested currencies that are newer than their
+    //latest stored date. The history is downloaded and parsed at most once per
+    //version of the ECB file (see currentHistory), however many chunks or single
+    //currencies an ingestion run asks for; quoted currencies without new rates are
+    //reported with 0 stored, currencies the ECB does not quote as not served.
+    @Override
+    @Transactional
+    public Map<String, FetchResult> fetchAndStoreExchangeRatesInBulk(List<String> currencies) {
+        Map<String, FetchResult> results = new LinkedHashMap<>();
+        EcbHistory ecbHistory = currentHistory();
+        if (ecbHistory == null) {
+            return results;
+        }
+        Map<String, LocalDate> latestStored = new HashMap<>();
+        for (String currency : currencies) {
+            if (!ecbHistory.contains(currency)) {
+                results.put(currency, FetchResult.notServed());
+                continue;
+            }
+            results.put(currency, FetchResult.stored(0));
+            exchangeRateRepository.findLatestDateByCurrencyCode(currency)
+                    .ifPresent(date -> latestStored.put(currency, date));
+        }
+
+        Map<String, Integer> saved = new HashMap<>();
+        ExchangeRateBatchWriter writer = new ExchangeRateBatchWriter(exchangeRateRepository, batchSize);
+        for (int i = 0; i < ecbHistory.size(); i++) {
+            String currency = ecbHistory.currencyAt(i);
+            if (currency == null || !results.containsKey(currency)) {
+                continue;
+            }
+            LocalDate date = ecbHistory.dateAt(i);
+            LocalDate latest = latestStored.get(currency);
+            if (latest == null || date.isAfter(latest)) {
+                writer.add(currency, date, ecbHistory.rateAt(i));
+                saved.merge(currency, 1, Integer::sum);
+            }
+        }
+        writer.flush();
+
+        saved.forEach((currency, count) -> results.put(currency, FetchResult.stored(count)));
+        log.info("Saved {} ECB rates for {} of {} currencies",
+                saved.values().stream().mapToInt(Integer::intValue).sum(), saved.size(), currencies.size());
+        return results;
+    }
+
+    @Override
+    public Provider getProvider() {
+        return Provider.ECB;
+    }
+
+    public ProviderResponse download(String url, String etag, String lastModified) throws IOException {
+        return downloadClient.download(url, etag, lastModified);
+    }
+
+    //Returns the parsed history, reusing the cached one while it is younger than the
+    //max age and, after that, as long as a conditional request answers 304. The zipped
+    //CSV is streamed from the network through ZipInputStream into the parser, so
+    //nothing is unpacked to disk. Concurrent ingestion chunks wait for one download
+    //instead of starting their own. Returns null if the download holds no CSV file.
+    private EcbHistory currentHistory() {
+        synchronized (historyLock) {
+            EcbHistory cached = history;
+            if (cached != null && System.currentTimeMillis() - historyCheckedAt < historyMaxAgeMs) {
+                return cached;
+            }
+            log.info("Fetching ECB history");
+            try {
+                ProviderResponse response = cached == null
+                        ? download(url, null, null)
+                        : download(url, cached.getEtag(), cached.getLastModified());
+                if (response.isNotModified() && cached != null) {
+                    historyCheckedAt = System.currentTimeMillis();
+                    return cached;
+                }
+                try (ZipInputStream zip = new ZipInputStream(response.getBody())) {
+                    if (!nextCsvEntry(zip)) {
+                        log.error("ECB download {} contains no CSV file", url);
+                        return null;
+                    }
+                    EcbHistory parsed = EcbHistory.parse(new InputStreamReader(zip, StandardCharsets.UTF_8),
+                            response.getEtag(), response.getLastModified());
+                    history = parsed;
+                    historyCheckedAt = System.currentTimeMillis();
+                    log.info("Parsed ECB history of {} rates for {} currencies", parsed.size(),
+                            parsed.getCurrencies().size());
+                    return parsed;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to download or parse ECB history", e);
+            }
+        }
+    }
+
+    private static boolean nextCsvEntry(ZipInputStream zip) throws IOException {
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".csv")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
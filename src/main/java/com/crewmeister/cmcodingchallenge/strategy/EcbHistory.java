@@ -0,0 +1,133 @@
+package com.crewmeister.cmcodingchallenge.strategy;
+
+import com.crewmeister.cmcodingchallenge.parser.RateCsvParser;
+import com.crewmeister.cmcodingchallenge.parser.RateRowSink;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parsed ECB reference-rate history, held as parallel arrays of observations in file order,
+ * together with the validators of the download it was parsed from.
+ */
+final class EcbHistory {
+
+    private final Set<String> currencies;
+    private final String[] currencyByColumn;
+    private final int[] columns;
+    private final int[] epochDays;
+    private final BigDecimal[] rates;
+    private final String etag;
+    private final String lastModified;
+
+    private EcbHistory(String[] currencyByColumn, int[] columns, int[] epochDays, BigDecimal[] rates,
+                       String etag, String lastModified) {
+        Set<String> quoted = new LinkedHashSet<>();
+        for (int column = 1; column < currencyByColumn.length; column++) {
+            if (currencyByColumn[column] != null) {
+                quoted.add(currencyByColumn[column]);
+            }
+        }
+        this.currencies = Collections.unmodifiableSet(quoted);
+        this.currencyByColumn = currencyByColumn;
+        this.columns = columns;
+        this.epochDays = epochDays;
+        this.rates = rates;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Parses the "Date,USD,JPY,..." CSV of the ECB; columns are mapped to currencies from its header row.
+     */
+    static EcbHistory parse(Reader reader, String etag, String lastModified) throws IOException {
+        List<String> header = new ArrayList<>();
+        IntList columns = new IntList();
+        IntList epochDays = new IntList();
+        List<BigDecimal> rates = new ArrayList<>();
+        new RateCsvParser().parse(reader, new RateRowSink() {
+            @Override
+            public void onHeader(String[] fields) {
+                header.clear();
+                header.addAll(Arrays.asList(fields));
+            }
+
+            @Override
+            public void onRate(int column, LocalDate date, BigDecimal rate) {
+                columns.add(column);
+                epochDays.add((int) date.toEpochDay());
+                rates.add(rate);
+            }
+        });
+        String[] currencyByColumn = new String[header.size()];
+        for (int column = 1; column < currencyByColumn.length; column++) {
+            String code = header.get(column).trim();
+            currencyByColumn[column] = code.isEmpty() ? null : code;
+        }
+        return new EcbHistory(currencyByColumn, columns.toArray(), epochDays.toArray(),
+                rates.toArray(new BigDecimal[0]), etag, lastModified);
+    }
+
+    /**
+     * @return the currencies the ECB quotes.
+     */
+    Set<String> getCurrencies() {
+        return currencies;
+    }
+
+    boolean contains(String currency) {
+        return currencies.contains(currency);
+    }
+
+    int size() {
+        return rates.length;
+    }
+
+    /**
+     * @return the currency of an observation, or null if its column has no currency header.
+     */
+    String currencyAt(int position) {
+        int column = columns[position];
+        return column < currencyByColumn.length ? currencyByColumn[column] : null;
+    }
+
+    LocalDate dateAt(int position) {
+        return LocalDate.ofEpochDay(epochDays[position]);
+    }
+
+    BigDecimal rateAt(int position) {
+        return rates[position];
+    }
+
+    String getEtag() {
+        return etag;
+    }
+
+    String getLastModified() {
+        return lastModified;
+    }
+
+    private static final class IntList {
+        private int[] values = new int[1024];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
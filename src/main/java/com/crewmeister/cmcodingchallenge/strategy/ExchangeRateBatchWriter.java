@@ -0,0 +1,48 @@
+package com.crewmeister.cmcodingchallenge.strategy;
+
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects parsed rates into fixed-size chunks and upserts each chunk as soon as it is full,
+ * so a strategy never holds more than one chunk of a series in memory.
+ */
+public class ExchangeRateBatchWriter {
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final int batchSize;
+    private final List<ExchangeRate> pending;
+    private int written;
+
+    public ExchangeRateBatchWriter(ExchangeRateRepository exchangeRateRepository, int batchSize) {
+        this.exchangeRateRepository = exchangeRateRepository;
+        this.batchSize = Math.max(1, batchSize);
+        this.pending = new ArrayList<>(this.batchSize);
+    }
+
+    public void add(String currency, LocalDate date, BigDecimal rate) {
+        pending.add(new ExchangeRate(null, currency, rate, date));
+        if (pending.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes any pending rates.
+     *
+     * @return the total number of rates written by this writer.
+     */
+    public int flush() {
+        if (!pending.isEmpty()) {
+            exchangeRateRepository.upsertAll(new ArrayList<>(pending));
+            written += pending.size();
+            pending.clear();
+        }
+        return written;
+    }
+}
@@ -2,11 +2,44 @@ package com.crewmeister.cmcodingchallenge.strategy;
 
 import com.crewmeister.cmcodingchallenge.constants.Provider;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 public interface ExchangeRateFetchStrategy {
     /*
         Strategy Pattern implemented to support future external data providers beyond
         Bundesbank, making the system easily extensible.
      */
-    public void fetchAndStoreExchangeRates(String currency);
+    /**
+     * Fetches the rates of a currency from the provider and stores the new ones.
+     *
+     * @return the number of rates written, that the provider reported the series as unchanged, or that
+     * it does not publish the currency.
+     * @throws java.io.UncheckedIOException if the provider could not be reached or its response not read,
+     * so the caller can record the failure and fall back to another provider.
+     */
+    public FetchResult fetchAndStoreExchangeRates(String currency);
     public Provider getProvider();
+
+    /**
+     * @return how many currencies one {@link #fetchAndStoreExchangeRatesInBulk} download may cover;
+     * 1 if the provider only serves one series per request.
+     */
+    default int getMaxBulkSize() {
+        return 1;
+    }
+
+    /**
+     * Fetches the rates of several currencies, in one download where the provider supports it,
+     * and stores the new ones.
+     *
+     * @return the result per currency; currencies missing from the map were not part of the
+     * download and should be fetched individually.
+     */
+    default Map<String, FetchResult> fetchAndStoreExchangeRatesInBulk(List<String> currencies) {
+        Map<String, FetchResult> results = new LinkedHashMap<>();
+        currencies.forEach(currency -> results.put(currency, fetchAndStoreExchangeRates(currency)));
+        return results;
+    }
 }
@@ -0,0 +1,37 @@
+package com.crewmeister.cmcodingchallenge.strategy;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of fetching one currency from a provider.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class FetchResult {
+
+    private static final FetchResult UNCHANGED = new FetchResult(0, true, false);
+    private static final FetchResult NOT_SERVED = new FetchResult(0, false, true);
+
+    /** Number of rates written. */
+    private final int stored;
+
+    /** True when the provider reported the series as not modified, so nothing was downloaded or parsed. */
+    private final boolean unchanged;
+
+    /** True when the provider does not publish the currency at all, so another provider has to serve it. */
+    private final boolean notServed;
+
+    public static FetchResult stored(int stored) {
+        return new FetchResult(stored, false, false);
+    }
+
+    public static FetchResult unchanged() {
+        return UNCHANGED;
+    }
+
+    public static FetchResult notServed() {
+        return NOT_SERVED;
+    }
+}
@@ -3,7 +3,7 @@ package com.crewmeister.cmcodingchallenge;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "exchange-rate.warm-up.enabled=false")
 class CmCodingChallengeApplicationTests {
 
 	@Test
@@ -8,21 +8,38 @@ import com.crewmeister.cmcodingchallenge.service.ExchangeRateService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.time.LocalDate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "exchange-rate.warm-up.enabled=false")
 @AutoConfigureMockMvc
+@AutoConfigureMetrics
 class ExchangeRateControllerIntegrationTest {
 
     @Autowired
@@ -37,6 +54,9 @@ class ExchangeRateControllerIntegrationTest {
     @Autowired
     private SupportedCurrenciesConfig config;
 
+    @LocalServerPort
+    private int port;
+
     @BeforeEach
     void setup() {
         // Clear and seed test data
@@ -76,8 +96,66 @@ class ExchangeRateControllerIntegrationTest {
 
     @Test
     void shouldReturnExchangeRateForCurrencyOnDate() throws Exception {
-        mockMvc.perform(get("/api/exchange-rates"))
+        MvcResult result = mockMvc.perform(get("/api/exchange-rates"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"currency\":\"USD\"")));
+    }
+
+    @Test
+    void shouldReturnExchangeRatesAsCsvWhenRequested() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/exchange-rates").accept("text/csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("currency,date,rate\nUSD,2023-12-31,1.10\n"));
+    }
+
+    @Test
+    void shouldGzipLargeResponsesForClientsAcceptingGzip() throws IOException, InterruptedException {
+        // Above server.compression.min-response-size; MockMvc bypasses Tomcat, so this goes over the wire
+        exchangeRateRepository.saveAll(IntStream.range(0, 100)
+                .mapToObj(day -> new ExchangeRate(null, "USD", new BigDecimal("1.10"), LocalDate.of(2023, 1, 1).plusDays(day)))
+                .collect(Collectors.toList()));
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/exchange-rates"))
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        assertTrue(response.headers().firstValue("ETag").orElse("").startsWith("W/"));
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertTrue(new String(body.readAllBytes()).contains("\"currency\":\"USD\""));
+        }
+    }
+
+    @Test
+    void shouldExposeLivenessAndReadinessProbes() throws Exception {
+        mockMvc.perform(get("/actuator/health/liveness"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"));
+        mockMvc.perform(get("/actuator/health/readiness"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.components.warmUp.details.phase").value("COMPLETED"));
+    }
+
+    @Test
+    void shouldExposeEndpointLatencyAndDatasetMetricsForPrometheus() throws Exception {
+        mockMvc.perform(get("/api/exchange-rates/2023-12-31"))
                 .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(containsString("uri=\"/api/exchange-rates/{date")))
+                .andExpect(content().string(containsString("fx_rates_stored")))
+                .andExpect(content().string(containsString("fx_cache_hit_ratio{application=\"cm-coding-challenge\",cache=\"cross-rates\"")));
     }
 
     @Test
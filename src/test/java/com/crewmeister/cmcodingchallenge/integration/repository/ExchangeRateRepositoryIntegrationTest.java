@@ -0,0 +1,112 @@
+package com.crewmeister.cmcodingchallenge.integration.repository;
+
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "exchange-rate.warm-up.enabled=false")
+public class ExchangeRateRepositoryIntegrationTest {
+
+    @Autowired
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        exchangeRateRepository.deleteAll();
+    }
+
+    @Test
+    void shouldNotDuplicateRowsWhenUpsertingSameHistoryTwice() {
+        List<ExchangeRate> rates = List.of(
+                new ExchangeRate(null, "USD", new BigDecimal("1.10"), LocalDate.of(2024, 1, 1)),
+                new ExchangeRate(null, "USD", new BigDecimal("1.20"), LocalDate.of(2024, 1, 2)));
+
+        exchangeRateRepository.upsertAll(rates);
+        exchangeRateRepository.upsertAll(rates);
+
+        assertEquals(2, exchangeRateRepository.count());
+    }
+
+    @Test
+    void shouldUpdateRateWhenUpsertingExistingCurrencyAndDate() {
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        exchangeRateRepository.upsertAll(List.of(new ExchangeRate(null, "USD", new BigDecimal("1.10"), date)));
+        exchangeRateRepository.upsertAll(List.of(new ExchangeRate(null, "USD", new BigDecimal("1.30"), date)));
+
+        ExchangeRate stored = exchangeRateRepository.findByCurrencyCodeAndDate("USD", date).orElseThrow();
+        assertEquals(0, new BigDecimal("1.30").compareTo(stored.getExchangeRate()));
+        assertEquals(1, exchangeRateRepository.count());
+    }
+
+    @Test
+    void shouldReturnLatestStoredDateForCurrency() {
+        exchangeRateRepository.upsertAll(List.of(
+                new ExchangeRate(null, "USD", new BigDecimal("1.10"), LocalDate.of(2024, 1, 1)),
+                new ExchangeRate(null, "USD", new BigDecimal("1.20"), LocalDate.of(2024, 1, 5))));
+
+        assertEquals(LocalDate.of(2024, 1, 5),
+                exchangeRateRepository.findLatestDateByCurrencyCode("USD").orElseThrow());
+        assertFalse(exchangeRateRepository.findLatestDateByCurrencyCode("GBP").isPresent());
+    }
+
+    @Test
+    void shouldReturnCurrencyRangeInDateOrder() {
+        exchangeRateRepository.upsertAll(List.of(
+                new ExchangeRate(null, "USD", new BigDecimal("1.30"), LocalDate.of(2024, 1, 3)),
+                new ExchangeRate(null, "USD", new BigDecimal("1.10"), LocalDate.of(2024, 1, 1)),
+                new ExchangeRate(null, "GBP", new BigDecimal("0.85"), LocalDate.of(2024, 1, 2)),
+                new ExchangeRate(null, "USD", new BigDecimal("1.20"), LocalDate.of(2024, 1, 2)),
+                new ExchangeRate(null, "USD", new BigDecimal("1.40"), LocalDate.of(2024, 1, 4))));
+
+        List<ExchangeRate> range = exchangeRateRepository.findByCurrencyCodeAndDateBetweenOrderByDateAsc(
+                "USD", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 3));
+
+        assertEquals(3, range.size());
+        assertEquals(LocalDate.of(2024, 1, 1), range.get(0).getDate());
+        assertEquals(LocalDate.of(2024, 1, 3), range.get(2).getDate());
+    }
+
+    @Test
+    void shouldUseCompositeIndexForCurrencyRangeScan() {
+        String plan = explain("SELECT * FROM exchange_rate WHERE currency_code = 'USD'"
+                + " AND date BETWEEN DATE '2024-01-01' AND DATE '2024-12-31' ORDER BY date");
+        assertTrue(plan.contains("UK_EXCHANGE_RATE_CURRENCY_DATE"), plan);
+    }
+
+    @Test
+    void shouldUseCompositeIndexForCurrencyAndDateLookup() {
+        String plan = explain("SELECT * FROM exchange_rate WHERE currency_code = 'USD' AND date = DATE '2024-01-01'");
+        assertTrue(plan.contains("UK_EXCHANGE_RATE_CURRENCY_DATE"), plan);
+    }
+
+    @Test
+    void shouldUseCompositeIndexForLatestDateOfCurrency() {
+        String plan = explain("SELECT MAX(date) FROM exchange_rate WHERE currency_code = 'USD'");
+        assertTrue(plan.contains("UK_EXCHANGE_RATE_CURRENCY_DATE"), plan);
+    }
+
+    @Test
+    void shouldUseDateIndexForPerDateListing() {
+        String plan = explain("SELECT * FROM exchange_rate WHERE date = DATE '2024-01-01'");
+        assertTrue(plan.contains("IDX_EXCHANGE_RATE_DATE"), plan);
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class).toUpperCase();
+    }
+}
@@ -17,7 +17,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "exchange-rate.warm-up.enabled=false")
 public class ExchangeRateServiceIntegrationTest {
 
     @Autowired
@@ -0,0 +1,79 @@
+package com.crewmeister.cmcodingchallenge.integration.snapshot;
+
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import com.crewmeister.cmcodingchallenge.snapshot.ExchangeRateSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "exchange-rate.warm-up.enabled=false")
+public class ExchangeRateSnapshotIntegrationTest {
+
+    @Autowired
+    private ExchangeRateSnapshot snapshot;
+
+    @Autowired
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() {
+        exchangeRateRepository.deleteAll();
+        file = tempDir.resolve("snapshots/rates.fxr");
+        ReflectionTestUtils.setField(snapshot, "path", file.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(snapshot, "path", "");
+    }
+
+    @Test
+    void shouldRestoreWrittenSnapshotIntoEmptyDatabase() throws IOException {
+        exchangeRateRepository.upsertAll(List.of(
+                new ExchangeRate(null, "USD", new BigDecimal("1.10"), LocalDate.of(2024, 1, 1)),
+                new ExchangeRate(null, "USD", new BigDecimal("1.20"), LocalDate.of(2024, 1, 2)),
+                new ExchangeRate(null, "GBP", new BigDecimal("0.85"), LocalDate.of(2024, 1, 2))));
+
+        assertFalse(snapshot.exists());
+        assertTrue(snapshot.write() > 0);
+        assertTrue(snapshot.exists());
+        exchangeRateRepository.deleteAll();
+
+        assertEquals(3, snapshot.load());
+        assertEquals(3, exchangeRateRepository.count());
+        ExchangeRate restored = exchangeRateRepository.findByCurrencyCodeAndDate("USD", LocalDate.of(2024, 1, 2)).orElseThrow();
+        assertEquals(0, new BigDecimal("1.20").compareTo(restored.getExchangeRate()));
+    }
+
+    @Test
+    void shouldLoadNothingWithoutSnapshotAndRejectForeignFiles() throws IOException {
+        assertEquals(0, snapshot.load());
+
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "currency,date,rate\n");
+
+        assertThrows(IOException.class, () -> snapshot.load());
+    }
+}
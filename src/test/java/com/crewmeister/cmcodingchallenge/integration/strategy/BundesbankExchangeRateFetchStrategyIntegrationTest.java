@@ -0,0 +1,95 @@
+package com.crewmeister.cmcodingchallenge.integration.strategy;
+
+import com.crewmeister.cmcodingchallenge.client.ProviderDownloadClient;
+import com.crewmeister.cmcodingchallenge.client.ProviderResponse;
+import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import com.crewmeister.cmcodingchallenge.repository.SeriesValidatorRepository;
+import com.crewmeister.cmcodingchallenge.strategy.BundesbankExchangeRateFetchStrategy;
+import com.crewmeister.cmcodingchallenge.strategy.FetchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = "exchange-rate.warm-up.enabled=false")
+public class BundesbankExchangeRateFetchStrategyIntegrationTest {
+
+    private static final String USD_SERIES = "BBEX3.D.USD.EUR.BB.AC.000";
+    private static final String GBP_SERIES = "BBEX3.D.GBP.EUR.BB.AC.000";
+
+    @Autowired
+    private BundesbankExchangeRateFetchStrategy bundesbankStrategy;
+
+    @Autowired
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @Autowired
+    private SeriesValidatorRepository seriesValidatorRepository;
+
+    @MockBean
+    private ProviderDownloadClient downloadClient;
+
+    @BeforeEach
+    void setUp() {
+        exchangeRateRepository.deleteAll();
+        seriesValidatorRepository.deleteAll();
+    }
+
+    @Test
+    void shouldStoreRatesWhenResponseHasNoValidators() throws Exception {
+        String csv = "\"Time series\",\"" + USD_SERIES + "\"\n" +
+                "\"2024-01-02\",\"1.1000\"\n" +
+                "\"2024-01-03\",\"1.0950\"\n";
+        when(downloadClient.download(anyString(), isNull(), isNull()))
+                .thenReturn(ProviderResponse.ok(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), null, null));
+
+        FetchResult result = bundesbankStrategy.fetchAndStoreExchangeRates("USD");
+
+        assertEquals(2, result.getStored());
+        assertEquals(LocalDate.of(2024, 1, 3), exchangeRateRepository.findLatestDateByCurrencyCode("USD").orElseThrow());
+        assertFalse(seriesValidatorRepository.existsById(USD_SERIES));
+    }
+
+    @Test
+    void shouldStoreValidatorsSentWithResponse() throws Exception {
+        String csv = "\"Time series\",\"" + USD_SERIES + "\"\n" +
+                "\"2024-01-02\",\"1.1000\"\n";
+        when(downloadClient.download(anyString(), isNull(), isNull()))
+                .thenReturn(ProviderResponse.ok(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                        "\"v1\"", null));
+
+        bundesbankStrategy.fetchAndStoreExchangeRates("USD");
+
+        assertTrue(seriesValidatorRepository.existsById(USD_SERIES));
+    }
+
+    @Test
+    void shouldStoreBulkDownloadWhenResponseHasNoValidators() throws Exception {
+        String csv = ",\"" + USD_SERIES + "\",\"" + USD_SERIES + "_FLAGS\",\"" + GBP_SERIES + "\",\"" + GBP_SERIES + "_FLAGS\"\n" +
+                "2024-01-02,1.1000,,0.8600,\n" +
+                "2024-01-03,1.0950,,0.8650,\n";
+        when(downloadClient.download(anyString(), isNull(), isNull()))
+                .thenReturn(ProviderResponse.ok(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), null, null));
+
+        Map<String, FetchResult> results = bundesbankStrategy.fetchAndStoreExchangeRatesInBulk(List.of("USD", "GBP"));
+
+        assertEquals(2, results.get("USD").getStored());
+        assertEquals(2, results.get("GBP").getStored());
+        assertEquals(4, exchangeRateRepository.count());
+        assertEquals(0, seriesValidatorRepository.count());
+    }
+}
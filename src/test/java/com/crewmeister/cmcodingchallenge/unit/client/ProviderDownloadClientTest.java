@@ -0,0 +1,210 @@
+package com.crewmeister.cmcodingchallenge.unit.client;
+
+import com.crewmeister.cmcodingchallenge.client.ProviderDownloadClient;
+import com.crewmeister.cmcodingchallenge.client.ProviderResponse;
+import com.crewmeister.cmcodingchallenge.config.ProviderHttpClientConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProviderDownloadClientTest {
+
+    private static final String CSV = "\"2024-01-02\",\"1.1050\"\n";
+
+    private HttpServer server;
+    private ProviderDownloadClient client;
+    private final List<String> acceptEncodings = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstChunkRead = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/plain", exchange -> {
+            acceptEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            respond(exchange, 200, CSV.getBytes(StandardCharsets.UTF_8));
+        });
+        server.createContext("/gzip", exchange -> {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            respond(exchange, 200, gzip(CSV));
+        });
+        server.createContext("/conditional", exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                respond(exchange, 304, new byte[0]);
+            } else {
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                exchange.getResponseHeaders().add("Last-Modified", "Mon, 01 Jan 2024 00:00:00 GMT");
+                respond(exchange, 200, CSV.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.createContext("/chunked", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(CSV.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                firstChunkRead.await(5, TimeUnit.SECONDS);
+                out.write(CSV.getBytes(StandardCharsets.UTF_8));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.createContext("/stalled", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(CSV.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                Thread.sleep(3_000);
+                out.write(CSV.getBytes(StandardCharsets.UTF_8));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.createContext("/missing", exchange -> respond(exchange, 404, new byte[0]));
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, CSV.getBytes(StandardCharsets.UTF_8));
+        });
+        server.start();
+        // The first exchange of a cold JVM can take longer than the short read timeout under test
+        ProviderDownloadClient warmUpClient =
+                new ProviderDownloadClient(new ProviderHttpClientConfig().providerHttpClient(5_000), 5_000);
+        warmUpClient.open(url("/plain")).close();
+        warmUpClient.shutdown();
+        acceptEncodings.clear();
+        client = new ProviderDownloadClient(new ProviderHttpClientConfig().providerHttpClient(1_000), 500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void shouldStreamBodyAndRejectErrorStatus() throws IOException {
+        try (InputStream in = client.stream(url("/gzip"))) {
+            assertEquals(CSV, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        IOException e = assertThrows(IOException.class, () -> client.stream(url("/missing")));
+        assertTrue(e.getMessage().contains("404"));
+    }
+
+    @Test
+    void shouldDownloadBodyAndNegotiateGzip() throws IOException {
+        try (InputStream in = client.open(url("/plain"))) {
+            assertEquals(CSV, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(List.of("gzip"), acceptEncodings);
+    }
+
+    @Test
+    void shouldDecompressGzipResponses() throws IOException {
+        try (InputStream in = client.open(url("/gzip"))) {
+            assertEquals(CSV, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void shouldCompleteConcurrentDownloadsAsynchronously() {
+        List<CompletableFuture<InputStream>> downloads = List.of(
+                client.openAsync(url("/plain")), client.openAsync(url("/gzip")), client.openAsync(url("/plain")));
+
+        CompletableFuture.allOf(downloads.toArray(new CompletableFuture[0])).join();
+
+        downloads.forEach(download -> assertTrue(download.isDone() && !download.isCompletedExceptionally()));
+    }
+
+    @Test
+    void shouldReturnValidatorsAndHonourConditionalRequests() throws IOException {
+        ProviderResponse first = client.download(url("/conditional"), null, null);
+        assertEquals("\"v1\"", first.getEtag());
+        assertEquals("Mon, 01 Jan 2024 00:00:00 GMT", first.getLastModified());
+        assertEquals(CSV, new String(first.getBody().readAllBytes(), StandardCharsets.UTF_8));
+
+        ProviderResponse second = client.download(url("/conditional"), first.getEtag(), first.getLastModified());
+        assertTrue(second.isNotModified());
+    }
+
+    @Test
+    void shouldHandOverBodyWhileItIsStillArriving() throws IOException {
+        ProviderResponse response = client.download(url("/chunked"), null, null);
+
+        try (InputStream in = response.getBody()) {
+            // The server holds back the rest of the body until the first chunk has been consumed
+            assertEquals(CSV, new String(in.readNBytes(CSV.length()), StandardCharsets.UTF_8));
+            firstChunkRead.countDown();
+            assertEquals(CSV, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void shouldFailWhenProviderStallsMidBody() throws IOException {
+        ProviderResponse response = client.download(url("/stalled"), null, null);
+        long start = System.nanoTime();
+
+        try (InputStream in = response.getBody()) {
+            IOException e = assertThrows(IOException.class, in::readAllBytes);
+            assertTrue(e.getMessage().contains("Timed out"), e.getMessage());
+        }
+
+        assertTrue(System.nanoTime() - start < 1_800_000_000L, "stalled body was not cut off by the read timeout");
+    }
+
+    @Test
+    void shouldFailOnErrorStatus() {
+        IOException e = assertThrows(IOException.class, () -> client.open(url("/missing")));
+        assertTrue(e.getMessage().contains("404"), e.getMessage());
+    }
+
+    @Test
+    void shouldFailWhenProviderIsTooSlow() {
+        long start = System.nanoTime();
+
+        assertThrows(IOException.class, () -> client.open(url("/slow")));
+
+        assertTrue(System.nanoTime() - start < 1_800_000_000L, "download was not cut off by the read timeout");
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
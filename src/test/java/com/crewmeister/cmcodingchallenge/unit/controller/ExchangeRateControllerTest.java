@@ -2,60 +2,190 @@ package com.crewmeister.cmcodingchallenge.unit.controller;
 
 
 import com.crewmeister.cmcodingchallenge.controller.ExchangeRateController;
+import com.crewmeister.cmcodingchallenge.dto.BatchConversionResultDTO;
+import com.crewmeister.cmcodingchallenge.dto.CacheStatsDTO;
 import com.crewmeister.cmcodingchallenge.dto.ConversionResultDTO;
+import com.crewmeister.cmcodingchallenge.dto.CrossConversionResultDTO;
 import com.crewmeister.cmcodingchallenge.dto.ExchangeRateDTO;
+import com.crewmeister.cmcodingchallenge.dto.ProviderStatsDTO;
+import com.crewmeister.cmcodingchallenge.dto.RateAggregateDTO;
 import com.crewmeister.cmcodingchallenge.exception.ResourceNotFoundException;
+import com.crewmeister.cmcodingchallenge.export.ExportFormat;
+import com.crewmeister.cmcodingchallenge.service.DatasetVersion;
 import com.crewmeister.cmcodingchallenge.service.ExchangeRateService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 
 @WebMvcTest(controllers = ExchangeRateController.class)
 @AutoConfigureMockMvc
+@Import(DatasetVersion.class)
 public class ExchangeRateControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private DatasetVersion datasetVersion;
+
     @MockBean
     private ExchangeRateService exchangeRateService;
 
     @Test
     public void shouldReturnAllExchangeRates() throws Exception {
-        // Prepare mock data
-        LocalDate date = LocalDate.of(1999, 01, 17);
-        ExchangeRateDTO rate1 = new ExchangeRateDTO("USD", BigDecimal.valueOf(1.12), date) ;
-        ExchangeRateDTO rate2 = new ExchangeRateDTO("GBP", BigDecimal.valueOf(0.85), date);
-        List<ExchangeRateDTO> mockRates = Arrays.asList(rate1, rate2);
+        // Mock the streamed body written by the service
+        String json = "[{\"currency\":\"USD\",\"rate\":1.12,\"date\":\"1999-01-17\"}]";
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write(json.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exchangeRateService).writeAllExchangeRates(eq(ExportFormat.JSON), any());
+
+        // Perform the GET request and assert the streamed response
+        MvcResult result = mockMvc.perform(get("/api/exchange-rates")) // not just /exchange-rates
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().json(json));
+    }
 
-        // Mock the service call
-        when(exchangeRateService.getAllExchangeRates()).thenReturn(mockRates);
+    @Test
+    void shouldStreamAllExchangeRatesInNegotiatedFormatTest() throws Exception {
+        String csv = "currency,date,rate\nUSD,1999-01-17,1.12\n";
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write(csv.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exchangeRateService).writeAllExchangeRates(eq(ExportFormat.CSV), any());
+
+        MvcResult result = mockMvc.perform(get("/api/exchange-rates").accept("text/csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string(HttpHeaders.ETAG, datasetVersion.getETag("csv")))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(content().string(csv));
+    }
 
-        // Perform the GET request and assert the response
-        mockMvc.perform(get("/api/exchange-rates")) // not just /exchange-rates
-                .andExpect(status().isOk());
+    @Test
+    void shouldKeepETagsOfRepresentationsApartTest() throws Exception {
+        mockMvc.perform(get("/api/exchange-rates").accept(ExportFormat.BINARY.getMediaType())
+                        .header(HttpHeaders.IF_NONE_MATCH, datasetVersion.getETag("bin")))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        mockMvc.perform(get("/api/exchange-rates").accept("text/csv")
+                        .header(HttpHeaders.IF_NONE_MATCH, datasetVersion.getETag()))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void shouldReturnExchangeRatesByDateAsCsvTest() throws Exception {
+        LocalDate date = LocalDate.of(1999, 1, 17);
+        List<ExchangeRateDTO> rates = List.of(new ExchangeRateDTO("USD", new BigDecimal("1.12"), date));
+        when(exchangeRateService.getExchangeRatesForDate(date)).thenReturn(rates);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(2).write("currency,date,rate\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exchangeRateService).writeExchangeRates(eq(rates), eq(ExportFormat.CSV), any());
+
+        MvcResult result = mockMvc.perform(get("/api/exchange-rates/1999-01-17").accept("text/csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string("currency,date,rate\n"));
+    }
+
+    @Test
+    void shouldReturnRatesForCurrencyInRangeTest() throws Exception {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 1, 31);
+        List<ExchangeRateDTO> rates = List.of(new ExchangeRateDTO("USD", new BigDecimal("1.12"), LocalDate.of(2024, 1, 2)));
+        when(exchangeRateService.getExchangeRatesForCurrency("USD", from, to)).thenReturn(rates);
+
+        mockMvc.perform(get("/api/exchange-rates/USD").param("from", "2024-01-01").param("to", "2024-01-31"))
+                .andExpect(request().asyncStarted());
+
+        verify(exchangeRateService).getExchangeRatesForCurrency("USD", from, to);
+        verify(exchangeRateService, never()).getExchangeRatesForDate(any());
+    }
+
+    @Test
+    void shouldReturn400ForInvalidCurrencyRangeTest() throws Exception {
+        when(exchangeRateService.getExchangeRatesForCurrency("USD", LocalDate.of(2024, 2, 1), null))
+                .thenThrow(new IllegalArgumentException("'from' must not be after 'to'."));
+
+        mockMvc.perform(get("/api/exchange-rates/USD").param("from", "2024-02-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnRateAggregatesTest() throws Exception {
+        when(exchangeRateService.getExchangeRateAggregates("USD", LocalDate.of(2024, 1, 1), null, "month"))
+                .thenReturn(List.of(new RateAggregateDTO("USD", LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 31), 22,
+                        new BigDecimal("1.08"), new BigDecimal("1.11"), new BigDecimal("1.09"))));
+
+        mockMvc.perform(get("/api/exchange-rates/USD/aggregates").param("from", "2024-01-01").param("period", "month"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"currency\":\"USD\",\"from\":\"2024-01-02\",\"to\":\"2024-01-31\","
+                        + "\"count\":22,\"min\":1.08,\"max\":1.11,\"average\":1.09}]"));
+    }
+
+    @Test
+    void shouldConvertCrossCurrencyTest() throws Exception {
+        LocalDate date = LocalDate.of(2024, 1, 2);
+        when(exchangeRateService.convertAmount(new BigDecimal("100"), "USD", "JPY", date))
+                .thenReturn(new CrossConversionResultDTO("USD", "JPY", new BigDecimal("100"),
+                        new BigDecimal("15000.00"), new BigDecimal("150"), date));
+
+        mockMvc.perform(get("/api/convert/cross")
+                        .param("from", "USD")
+                        .param("to", "JPY")
+                        .param("amount", "100")
+                        .param("date", "2024-01-02"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"from\":\"USD\",\"to\":\"JPY\",\"convertedAmount\":15000.00,\"rate\":150}"));
     }
 
     @Test
     void shouldReturn404WhenNoExchangeRatesFoundTest() throws Exception {
-        when(exchangeRateService.getAllExchangeRates())
-                .thenThrow(new ResourceNotFoundException("No currencies found."));
+        doThrow(new ResourceNotFoundException("No exchange rates found."))
+                .when(exchangeRateService).ensureExchangeRatesExist();
 
         mockMvc.perform(get("/api/exchange-rates"))
                 .andExpect(status().isNotFound());
@@ -70,6 +200,67 @@ public class ExchangeRateControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void shouldReturnValidatorsAndCacheControlForCurrenciesTest() throws Exception {
+        when(exchangeRateService.getAllCurrencies()).thenReturn(List.of("AUD","BRL"));
+
+        mockMvc.perform(get("/api/currencies"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, datasetVersion.getETag()))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, must-revalidate, public"));
+    }
+
+    @Test
+    void shouldReturnNotModifiedForMatchingETagWithoutCallingServiceTest() throws Exception {
+        mockMvc.perform(get("/api/currencies").header(HttpHeaders.IF_NONE_MATCH, datasetVersion.getETag()))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/exchange-rates").header(HttpHeaders.IF_NONE_MATCH, datasetVersion.getETag()))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/exchange-rates/1999-01-17").header(HttpHeaders.IF_NONE_MATCH, datasetVersion.getETag()))
+                .andExpect(status().isNotModified());
+
+        verify(exchangeRateService, never()).getAllCurrencies();
+        verify(exchangeRateService, never()).ensureExchangeRatesExist();
+        verify(exchangeRateService, never()).getExchangeRatesForDate(any());
+    }
+
+    @Test
+    void shouldRejectInvalidInputBeforeConditionalCheckTest() throws Exception {
+        doThrow(new IllegalArgumentException("Invalid currency code."))
+                .when(exchangeRateService).validateCurrencyRange("XXX", null, null);
+        doThrow(new IllegalArgumentException("'from' must not be after 'to'."))
+                .when(exchangeRateService).validateCurrencyRange("USD", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1));
+
+        mockMvc.perform(get("/api/exchange-rates/XXX").header(HttpHeaders.IF_NONE_MATCH, datasetVersion.getETag()))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/exchange-rates/USD").param("from", "2024-02-01").param("to", "2024-01-01")
+                        .header(HttpHeaders.IF_NONE_MATCH, datasetVersion.getETag()))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/exchange-rates/USD/aggregates").param("period", "week")
+                        .header(HttpHeaders.IF_NONE_MATCH, datasetVersion.getETag()))
+                .andExpect(status().isBadRequest());
+
+        verify(exchangeRateService, never()).getExchangeRatesForCurrency(any(), any(), any());
+    }
+
+    @Test
+    void shouldReturnNotModifiedForUnchangedLastModifiedTest() throws Exception {
+        mockMvc.perform(get("/api/currencies").header(HttpHeaders.IF_MODIFIED_SINCE, datasetVersion.getLastModified()))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void shouldReturnFreshContentAfterDatasetVersionChangesTest() throws Exception {
+        String staleETag = datasetVersion.getETag();
+        datasetVersion.bump();
+        when(exchangeRateService.getAllCurrencies()).thenReturn(List.of("AUD","BRL"));
+
+        mockMvc.perform(get("/api/currencies").header(HttpHeaders.IF_NONE_MATCH, staleETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, datasetVersion.getETag()));
+    }
+
     @Test
     void shouldReturn404WhenNoCurrenciesFoundTest() throws Exception {
         when(exchangeRateService.getAllCurrencies()).thenThrow(
@@ -139,6 +330,23 @@ public class ExchangeRateControllerTest {
 
     }
 
+    @Test
+    void shouldConvertToEuroAsOfTest() throws Exception {
+        LocalDate date = LocalDate.parse("1999-01-17");
+        BigDecimal amount = BigDecimal.valueOf(100);
+        ConversionResultDTO mockData = new ConversionResultDTO("USD", amount, BigDecimal.valueOf(52.36), date,
+                LocalDate.parse("1999-01-15"));
+        when(exchangeRateService.convertAmountToEuroAsOf(amount, "USD", date)).thenReturn(mockData);
+
+        mockMvc.perform(get("/api/convert/" )
+                        .param("currency", "USD")
+                        .param("amount", "100")
+                        .param("date", "1999-01-17")
+                        .param("asOf", "true"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"date\":\"1999-01-17\",\"rateDate\":\"1999-01-15\"}"));
+    }
+
     @Test
     void shouldReturnExceptionIfInvalidDateWhileConvertToEuroTest() throws Exception {
         String dateStr = "3000-01-17";
@@ -231,6 +439,43 @@ public class ExchangeRateControllerTest {
 
     }
 
+    @Test
+    void shouldConvertBatchTest() throws Exception {
+        LocalDate date = LocalDate.parse("1999-01-17");
+        ConversionResultDTO converted = new ConversionResultDTO("USD", BigDecimal.valueOf(100), BigDecimal.valueOf(52.36), date);
+        when(exchangeRateService.convertBatch(anyList())).thenReturn(List.of(
+                BatchConversionResultDTO.success(0, converted),
+                BatchConversionResultDTO.failure(1, "Invalid currency code.")));
+
+        mockMvc.perform(post("/api/convert/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"currency\":\"USD\",\"amount\":100,\"date\":\"1999-01-17\"}," +
+                                "{\"currency\":\"XXX\",\"amount\":1,\"date\":\"1999-01-17\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"index\":0,\"result\":{\"currency\":\"USD\",\"convertedToEUR\":52.36}}," +
+                        "{\"index\":1,\"error\":\"Invalid currency code.\"}]"));
+    }
+
+    @Test
+    void shouldReturnCacheStatsTest() throws Exception {
+        when(exchangeRateService.getCacheStats()).thenReturn(List.of(CacheStatsDTO.of("currencies", 3, 1)));
+
+        mockMvc.perform(get("/api/cache-stats"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"name\":\"currencies\",\"hits\":3,\"misses\":1,\"hitRatio\":0.75}]"));
+    }
+
+    @Test
+    void shouldReturnProviderStatsTest() throws Exception {
+        when(exchangeRateService.getProviderStats()).thenReturn(List.of(
+                new ProviderStatsDTO("BUNDESBANK", "OPEN", 12, 6, 3, 120, 900, 1500)));
+
+        mockMvc.perform(get("/api/provider-stats"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"provider\":\"BUNDESBANK\",\"circuitState\":\"OPEN\",\"failures\":6,"
+                        + "\"rejected\":3,\"p95Millis\":900}]"));
+    }
+
     @Test
     void saveExchangeRateShouldReturnOk() throws Exception {
         // No setup needed since method is void
@@ -0,0 +1,51 @@
+package com.crewmeister.cmcodingchallenge.unit.currency;
+
+import com.crewmeister.cmcodingchallenge.config.SupportedCurrenciesConfig;
+import com.crewmeister.cmcodingchallenge.currency.CurrencyRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CurrencyRegistryTest {
+
+    private final CurrencyRegistry registry = new CurrencyRegistry(new SupportedCurrenciesConfig());
+
+    @Test
+    void shouldPackCodesIntoDenseIdsIgnoringCaseAndWhitespace() {
+        assertEquals(0, CurrencyRegistry.pack("AAA"));
+        assertEquals(CurrencyRegistry.ID_COUNT - 1, CurrencyRegistry.pack("ZZZ"));
+        assertEquals(CurrencyRegistry.pack("USD"), CurrencyRegistry.pack(" usd\t"));
+        assertEquals("USD", CurrencyRegistry.codeOf(CurrencyRegistry.pack("uSd")));
+    }
+
+    @Test
+    void shouldRejectMalformedCodes() {
+        for (String code : new String[]{null, "", "US", "USDX", "U$D", "US1", "ÜSD", "U D"}) {
+            assertEquals(CurrencyRegistry.UNKNOWN, CurrencyRegistry.pack(code), String.valueOf(code));
+        }
+        assertFalse(registry.isSupported(CurrencyRegistry.UNKNOWN));
+    }
+
+    @Test
+    void shouldKnowExactlyTheConfiguredCurrencies() {
+        SupportedCurrenciesConfig config = new SupportedCurrenciesConfig();
+        Set<Integer> ids = new HashSet<>();
+        for (String code : config.getCurrencies()) {
+            int id = CurrencyRegistry.pack(code);
+            assertTrue(registry.isSupported(id), code);
+            assertTrue(ids.add(id), "duplicate id for " + code);
+        }
+        assertFalse(registry.isSupported(CurrencyRegistry.pack("XXX")));
+    }
+
+    @Test
+    void shouldShareOneCanonicalStringPerCode() {
+        assertSame(CurrencyRegistry.codeOf(CurrencyRegistry.pack("gbp")), CurrencyRegistry.codeOf(CurrencyRegistry.pack("GBP ")));
+    }
+}
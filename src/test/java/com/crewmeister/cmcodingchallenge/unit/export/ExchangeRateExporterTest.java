@@ -0,0 +1,99 @@
+package com.crewmeister.cmcodingchallenge.unit.export;
+
+import com.crewmeister.cmcodingchallenge.dto.ExchangeRateDTO;
+import com.crewmeister.cmcodingchallenge.export.BinaryRateFormat;
+import com.crewmeister.cmcodingchallenge.export.ExchangeRateExporter;
+import com.crewmeister.cmcodingchallenge.export.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExchangeRateExporterTest {
+
+    private final ExchangeRateExporter exporter = new ExchangeRateExporter(new ObjectMapper().registerModule(new JavaTimeModule()));
+
+    private final List<ExchangeRateDTO> rates = List.of(
+            new ExchangeRateDTO("GBP", new BigDecimal("0.8512"), LocalDate.of(2024, 1, 2)),
+            new ExchangeRateDTO("USD", new BigDecimal("1.1050"), LocalDate.of(2024, 1, 2)),
+            new ExchangeRateDTO("USD", new BigDecimal("1.0956"), LocalDate.of(2024, 1, 3)),
+            new ExchangeRateDTO("USD", new BigDecimal("1.0919"), LocalDate.of(2024, 1, 8)));
+
+    @Test
+    void shouldWriteCsvWithHeaderRow() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exporter.write(ExportFormat.CSV, rates.stream(), out);
+
+        assertEquals("currency,date,rate\n" +
+                "GBP,2024-01-02,0.8512\n" +
+                "USD,2024-01-02,1.1050\n" +
+                "USD,2024-01-03,1.0956\n" +
+                "USD,2024-01-08,1.0919\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldRoundTripBinaryFormat() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exporter.write(ExportFormat.BINARY, rates.stream(), out);
+
+        List<ExchangeRateDTO> decoded = new ArrayList<>();
+        long count = BinaryRateFormat.read(new ByteArrayInputStream(out.toByteArray()), decoded::add);
+        assertEquals(4, count);
+        for (int i = 0; i < rates.size(); i++) {
+            assertEquals(rates.get(i).getCurrency(), decoded.get(i).getCurrency());
+            assertEquals(rates.get(i).getDate(), decoded.get(i).getDate());
+            assertEquals(0, rates.get(i).getRate().compareTo(decoded.get(i).getRate()));
+        }
+    }
+
+    @Test
+    void shouldEncodeLongSeriesCompactlyAcrossBlocks() throws IOException {
+        List<ExchangeRateDTO> history = new ArrayList<>();
+        LocalDate start = LocalDate.of(1999, 1, 4);
+        for (int i = 0; i < 10_000; i++) {
+            history.add(new ExchangeRateDTO("USD", new BigDecimal("1.1000").add(BigDecimal.valueOf(i % 50, 4)), start.plusDays(i)));
+        }
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+
+        exporter.write(ExportFormat.BINARY, history.stream(), binary);
+        exporter.write(ExportFormat.JSON, history.stream(), json);
+
+        List<ExchangeRateDTO> decoded = new ArrayList<>();
+        BinaryRateFormat.read(new ByteArrayInputStream(binary.toByteArray()), decoded::add);
+        assertEquals(history.size(), decoded.size());
+        assertEquals(history.get(9_999).getDate(), decoded.get(9_999).getDate());
+        assertEquals(0, history.get(4_097).getRate().compareTo(decoded.get(4_097).getRate()));
+        assertTrue(binary.size() * 10 < json.size(), "binary " + binary.size() + " vs json " + json.size());
+    }
+
+    @Test
+    void shouldRejectStreamsInAnotherFormat() {
+        byte[] csv = "currency,date,rate\n".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class, () -> BinaryRateFormat.read(new ByteArrayInputStream(csv), rate -> { }));
+    }
+
+    @Test
+    void shouldNegotiateFormatFromAcceptHeader() {
+        assertEquals(ExportFormat.JSON, ExportFormat.fromAcceptHeader(null));
+        assertEquals(ExportFormat.JSON, ExportFormat.fromAcceptHeader("*/*"));
+        assertEquals(ExportFormat.CSV, ExportFormat.fromAcceptHeader("text/csv"));
+        assertEquals(ExportFormat.BINARY, ExportFormat.fromAcceptHeader("application/json;q=0.5, application/vnd.crewmeister.fx-rates"));
+        assertEquals(ExportFormat.JSON, ExportFormat.fromAcceptHeader("text/csv;q=0, application/*"));
+    }
+}
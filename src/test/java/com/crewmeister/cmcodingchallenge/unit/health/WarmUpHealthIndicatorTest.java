@@ -0,0 +1,56 @@
+package com.crewmeister.cmcodingchallenge.unit.health;
+
+import com.crewmeister.cmcodingchallenge.health.WarmUpHealthIndicator;
+import com.crewmeister.cmcodingchallenge.service.WarmUpStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(MockitoExtension.class)
+public class WarmUpHealthIndicatorTest {
+
+    @Spy
+    private WarmUpStatus warmUpStatus = new WarmUpStatus();
+
+    @InjectMocks
+    private WarmUpHealthIndicator healthIndicator;
+
+    @Test
+    void shouldBeOutOfServiceUntilDataIsUsable() {
+        warmUpStatus.enter(WarmUpStatus.Phase.FETCHING);
+
+        Health health = healthIndicator.health();
+
+        assertEquals(Status.OUT_OF_SERVICE, health.getStatus());
+        assertEquals(WarmUpStatus.Phase.FETCHING, health.getDetails().get("phase"));
+    }
+
+    @Test
+    void shouldBeUpOnceSnapshotIsRestored() {
+        warmUpStatus.enter(WarmUpStatus.Phase.RESTORING_SNAPSHOT);
+        warmUpStatus.restored(3);
+        warmUpStatus.enter(WarmUpStatus.Phase.FETCHING);
+
+        Health health = healthIndicator.health();
+
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(3L, health.getDetails().get("restoredRates"));
+    }
+
+    @Test
+    void shouldStayOutOfServiceWhenIngestionStoredNothing() {
+        warmUpStatus.enter(WarmUpStatus.Phase.FETCHING);
+        warmUpStatus.finish(0);
+
+        Health health = healthIndicator.health();
+
+        assertEquals(Status.OUT_OF_SERVICE, health.getStatus());
+        assertEquals(WarmUpStatus.Phase.WAITING_FOR_DATA, health.getDetails().get("phase"));
+    }
+}
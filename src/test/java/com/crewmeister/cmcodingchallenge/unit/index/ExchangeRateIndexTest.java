@@ -0,0 +1,91 @@
+package com.crewmeister.cmcodingchallenge.unit.index;
+
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.index.ExchangeRateIndex;
+import com.crewmeister.cmcodingchallenge.index.RateSeries;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ExchangeRateIndexTest {
+
+    private final ExchangeRateIndex index = new ExchangeRateIndex();
+
+    @Test
+    void shouldFindIndexedRateByCurrencyAndDate() {
+        index.replace("USD", List.of(
+                new ExchangeRate(1L, "USD", new BigDecimal("1.0956"), LocalDate.of(2024, 1, 2)),
+                new ExchangeRate(2L, "USD", new BigDecimal("1.0919"), LocalDate.of(2024, 1, 3))));
+
+        long scaled = index.findScaledRate("USD", LocalDate.of(2024, 1, 3));
+
+        assertEquals(109190000L, scaled);
+        assertEquals(0, new BigDecimal("1.0919").compareTo(ExchangeRateIndex.toRate(scaled)));
+    }
+
+    @Test
+    void shouldReturnMissingForUnknownCurrencyOrDate() {
+        index.replace("USD", List.of(
+                new ExchangeRate(1L, "USD", new BigDecimal("1.0956"), LocalDate.of(2024, 1, 2))));
+
+        assertEquals(ExchangeRateIndex.MISSING, index.findScaledRate("USD", LocalDate.of(2024, 1, 1)));
+        assertEquals(ExchangeRateIndex.MISSING, index.findScaledRate("GBP", LocalDate.of(2024, 1, 2)));
+    }
+
+    @Test
+    void shouldDropCurrencyWhenReplacedWithEmptyHistory() {
+        index.replace("USD", List.of(
+                new ExchangeRate(1L, "USD", new BigDecimal("1.0956"), LocalDate.of(2024, 1, 2))));
+        index.replace("USD", Collections.emptyList());
+
+        assertEquals(ExchangeRateIndex.MISSING, index.findScaledRate("USD", LocalDate.of(2024, 1, 2)));
+    }
+
+    @Test
+    void shouldFindLatestPositionOnOrBeforeDay() {
+        index.replace("USD", List.of(
+                new ExchangeRate(1L, "USD", new BigDecimal("1.0956"), LocalDate.of(2024, 1, 5)),
+                new ExchangeRate(2L, "USD", new BigDecimal("1.0919"), LocalDate.of(2024, 1, 8))));
+        RateSeries series = index.getSeries("USD");
+
+        assertEquals(-1, series.floor((int) LocalDate.of(2024, 1, 4).toEpochDay()));
+        assertEquals(0, series.floor((int) LocalDate.of(2024, 1, 5).toEpochDay()));
+        assertEquals(0, series.floor((int) LocalDate.of(2024, 1, 7).toEpochDay()));
+        assertEquals(1, series.floor((int) LocalDate.of(2024, 2, 1).toEpochDay()));
+        assertEquals(LocalDate.of(2024, 1, 8).toEpochDay(), series.epochDayAt(1));
+    }
+
+    @Test
+    void shouldAnswerWindowAggregatesLikeAFullScan() {
+        Random random = new Random(42);
+        List<ExchangeRate> history = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            history.add(new ExchangeRate((long) i, "USD", BigDecimal.valueOf(90_000 + random.nextInt(40_000), 5),
+                    LocalDate.of(2000, 1, 1).plusDays(i)));
+        }
+        RateSeries series = RateSeries.of(history);
+
+        for (int trial = 0; trial < 500; trial++) {
+            int from = random.nextInt(series.size());
+            int to = from + random.nextInt(series.size() - from);
+            long sum = 0;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = from; i <= to; i++) {
+                sum += series.rateAt(i);
+                min = Math.min(min, series.rateAt(i));
+                max = Math.max(max, series.rateAt(i));
+            }
+            assertEquals(sum, series.sum(from, to));
+            assertEquals(min, series.min(from, to));
+            assertEquals(max, series.max(from, to));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.crewmeister.cmcodingchallenge.unit.metrics;
+
+import com.crewmeister.cmcodingchallenge.cache.CrossRateCache;
+import com.crewmeister.cmcodingchallenge.cache.CurrencyListCache;
+import com.crewmeister.cmcodingchallenge.metrics.ExchangeRateMetricsBinder;
+import com.crewmeister.cmcodingchallenge.service.DatasetVersion;
+import com.crewmeister.cmcodingchallenge.service.ExchangeRateService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ExchangeRateMetricsBinderTest {
+
+    @Mock
+    private ExchangeRateService exchangeRateService;
+
+    @Spy
+    private DatasetVersion datasetVersion = new DatasetVersion();
+
+    @Spy
+    private CurrencyListCache currencyListCache = new CurrencyListCache();
+
+    @Spy
+    private CrossRateCache crossRateCache = new CrossRateCache();
+
+    @InjectMocks
+    private ExchangeRateMetricsBinder binder;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldReportStoredRateCountKeptByIngestionTest() {
+        binder.bindTo(registry);
+        when(exchangeRateService.getStoredRateCount()).thenReturn(42L);
+
+        assertEquals(42.0, registry.get("fx.rates.stored").gauge().value());
+    }
+
+    @Test
+    void shouldReportCacheHitRatiosTest() {
+        binder.bindTo(registry);
+        currencyListCache.get(() -> List.of("USD"));
+        currencyListCache.get(() -> List.of("USD"));
+
+        assertEquals(0.5, registry.get("fx.cache.hit.ratio").tag("cache", CurrencyListCache.NAME).gauge().value());
+        assertEquals(1.0, registry.get("fx.cache.requests").tags("cache", CurrencyListCache.NAME, "result", "miss")
+                .functionCounter().count());
+        assertEquals(0.0, registry.get("fx.cache.hit.ratio").tag("cache", CrossRateCache.NAME).gauge().value());
+    }
+
+    @Test
+    void shouldReportDatasetAgeSinceLastChangeTest() {
+        binder.bindTo(registry);
+        datasetVersion.bump();
+
+        double age = registry.get("fx.dataset.age").timeGauge().value(TimeUnit.SECONDS);
+        assertTrue(age >= 0 && age < 60, "age " + age);
+    }
+}
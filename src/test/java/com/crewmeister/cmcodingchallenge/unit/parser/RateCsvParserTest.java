@@ -0,0 +1,87 @@
+package com.crewmeister.cmcodingchallenge.unit.parser;
+
+import com.crewmeister.cmcodingchallenge.parser.RateCsvParser;
+import com.crewmeister.cmcodingchallenge.parser.RateRowSink;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RateCsvParserTest {
+
+    private final List<String[]> headers = new ArrayList<>();
+    private final List<Object[]> rates = new ArrayList<>();
+
+    private final RateRowSink sink = new RateRowSink() {
+        @Override
+        public void onHeader(String[] fields) {
+            headers.add(fields);
+        }
+
+        @Override
+        public void onRate(int column, LocalDate date, BigDecimal rate) {
+            rates.add(new Object[]{column, date, rate});
+        }
+    };
+
+    @Test
+    void shouldParseQuotedSingleSeriesDownload() throws Exception {
+        String csv = "\"Time series\",\"BBEX3.D.USD.EUR.BB.AC.000\"\n" +
+                "\"Unit\",\"1 EUR = ... USD\"\n" +
+                "\"2024-01-01\",\"1.1000\",\"\"\n" +
+                "\"2024-01-02\",\".\",\"No value available\"\n";
+
+        long emitted = new RateCsvParser().parse(new StringReader(csv), sink);
+
+        assertEquals(1, emitted);
+        assertEquals(2, headers.size());
+        assertArrayEquals(new String[]{"Unit", "1 EUR = ... USD"}, headers.get(1));
+        assertArrayEquals(new Object[]{1, LocalDate.of(2024, 1, 1), new BigDecimal("1.1000")}, rates.get(0));
+    }
+
+    @Test
+    void shouldParseMultiColumnDownloadWithoutQuotes() throws Exception {
+        String csv = "Date,USD,JPY,CYP,\r\n" +
+                "2024-01-02,1.0956,155.5,N/A,\r\n" +
+                "2024-01-03,1.0919,-0.5,,";
+
+        long emitted = new RateCsvParser().parse(new StringReader(csv), sink);
+
+        assertEquals(4, emitted);
+        assertArrayEquals(new String[]{"Date", "USD", "JPY", "CYP", ""}, headers.get(0));
+        assertArrayEquals(new Object[]{2, LocalDate.of(2024, 1, 2), new BigDecimal("155.5")}, rates.get(1));
+        assertArrayEquals(new Object[]{2, LocalDate.of(2024, 1, 3), new BigDecimal("-0.5")}, rates.get(3));
+    }
+
+    @Test
+    void shouldKeepSeparatorsInsideQuotesAndRejectInvalidDates() throws Exception {
+        String csv = "\"Title\",\"Euro reference rate, US dollar\"\n" +
+                "\"2024-02-30\",\"1.0\"\n" +
+                "\"2024-02-29\",\"12345678901234567890.5\"\n";
+
+        new RateCsvParser().parse(new StringReader(csv), sink);
+
+        assertEquals("Euro reference rate, US dollar", headers.get(0)[1]);
+        assertEquals("2024-02-30", headers.get(1)[0]);
+        assertEquals(1, rates.size());
+        assertEquals(new BigDecimal("12345678901234567890.5"), rates.get(0)[2]);
+    }
+
+    @Test
+    void shouldSkipOverlongMalformedValues() throws Exception {
+        String csv = "Date,USD,JPY\n" +
+                "2024-01-02,1234567890123456789x,155.5\n" +
+                "2024-01-03,1234567890123456789.1.2,-\n";
+
+        long emitted = new RateCsvParser().parse(new StringReader(csv), sink);
+
+        assertEquals(1, emitted);
+        assertArrayEquals(new Object[]{2, LocalDate.of(2024, 1, 2), new BigDecimal("155.5")}, rates.get(0));
+    }
+}
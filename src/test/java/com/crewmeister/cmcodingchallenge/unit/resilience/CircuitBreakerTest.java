@@ -0,0 +1,103 @@
+package com.crewmeister.cmcodingchallenge.unit.resilience;
+
+import com.crewmeister.cmcodingchallenge.dto.ProviderStatsDTO;
+import com.crewmeister.cmcodingchallenge.resilience.CircuitBreaker;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong();
+
+    // window 4, at least 4 calls, opens at 50% failed or 75% slow (>= 100 ms), stays open for 1 s
+    private final CircuitBreaker breaker = new CircuitBreaker("BUNDESBANK", 4, 4, 50,
+            100 * MS, 75, 1_000 * MS, now::get);
+
+    @Test
+    void shouldOpenOnFailureRateAndRejectCalls() {
+        breaker.onSuccess(10 * MS);
+        breaker.onFailure(10 * MS);
+        breaker.onSuccess(10 * MS);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure(10 * MS);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getStats().getRejected());
+    }
+
+    @Test
+    void shouldOpenOnSlowCallRate() {
+        breaker.onSuccess(10 * MS);
+        breaker.onSuccess(150 * MS);
+        breaker.onSuccess(150 * MS);
+        breaker.onSuccess(150 * MS);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void shouldOnlyCountRecentCallsInWindow() {
+        breaker.onFailure(10 * MS);
+        breaker.onFailure(10 * MS);
+        breaker.onFailure(10 * MS);
+        // the window only held 3 calls so far, below the minimum
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void shouldLetOneTrialCallThroughAfterOpenDuration() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(10 * MS);
+        }
+        now.addAndGet(1_000 * MS);
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess(10 * MS);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void shouldReopenWhenTrialCallFails() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(10 * MS);
+        }
+        now.addAndGet(1_000 * MS);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure(10 * MS);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void shouldReportLatencyPercentiles() {
+        for (int i = 1; i <= 20; i++) {
+            breaker.onSuccess(i * MS);
+        }
+
+        ProviderStatsDTO stats = breaker.getStats();
+
+        assertEquals("BUNDESBANK", stats.getProvider());
+        assertEquals(20, stats.getCalls());
+        assertEquals(10, stats.getP50Millis());
+        assertEquals(19, stats.getP95Millis());
+        assertEquals(20, stats.getMaxMillis());
+    }
+}
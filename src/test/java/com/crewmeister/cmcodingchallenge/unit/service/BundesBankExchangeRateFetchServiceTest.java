@@ -1,8 +1,14 @@
 package com.crewmeister.cmcodingchallenge.unit.service;
 
+import com.crewmeister.cmcodingchallenge.client.ProviderResponse;
+import com.crewmeister.cmcodingchallenge.client.ProviderStatusException;
 import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.entity.SeriesValidator;
 import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import com.crewmeister.cmcodingchallenge.repository.SeriesValidatorRepository;
 import com.crewmeister.cmcodingchallenge.strategy.BundesbankExchangeRateFetchStrategy;
+import com.crewmeister.cmcodingchallenge.strategy.FetchResult;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -14,14 +20,25 @@ import org.springframework.test.util.ReflectionTestUtils;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +50,14 @@ public class BundesBankExchangeRateFetchServiceTest {
     @Mock
     ExchangeRateRepository repository;
 
+    @Mock
+    SeriesValidatorRepository seriesValidatorRepository;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(bundesbankStrategy, "batchSize", 1000);
+    }
+
     @Test
     void shouldParseAndStoreRatesWhenValidCsv() throws Exception {
         // Test CSV structure
@@ -51,14 +76,14 @@ public class BundesBankExchangeRateFetchServiceTest {
         // Mock the URL stream
         InputStream mockStream = new ByteArrayInputStream(mockedCSV.getBytes(StandardCharsets.UTF_8));
         BundesbankExchangeRateFetchStrategy spyService = spy(bundesbankStrategy);
-        doReturn(mockStream).when(spyService).openUrlStream(anyString());
+        doReturn(ProviderResponse.ok(mockStream, null, null)).when(spyService).download(anyString(), any());
 
         // Execute the method under test
         spyService.fetchAndStoreExchangeRates("USD");
 
         // Verify repository interactions
         ArgumentCaptor<List<ExchangeRate>> captor = ArgumentCaptor.forClass(List.class);
-        verify(repository, times(1)).saveAll(captor.capture());
+        verify(repository, times(1)).upsertAll(captor.capture());
 
         List<ExchangeRate> savedRates = captor.getValue();
         assertNotNull(savedRates);
@@ -71,6 +96,63 @@ public class BundesBankExchangeRateFetchServiceTest {
         assertEquals(new BigDecimal("1.1000"), firstRate.getExchangeRate());
     }
 
+    @Test
+    void shouldOnlySaveRatesNewerThanLatestStoredDate() throws Exception {
+        String mockedCSV =
+                "\"Time series\",\"BBEX3.D.USD.EUR.BB.AC.000\"\n" +
+                        "\"Currency\",\"USD\"\n" +
+                        "\"Unit\",\"1 USD\"\n" +
+                        "\"\"\n" +
+                        "\"Date\",\"Value\"\n" +
+                        "\"2024-01-01\",\"1.1000\"\n" +
+                        "\"2024-01-02\",\"1.2000\"\n" +
+                        "\"2024-01-03\",\"1.3000\"\n";
+
+        ReflectionTestUtils.setField(bundesbankStrategy, "tsIdTemplate", "BBEX3.D.%s.EUR.BB.AC.000");
+        ReflectionTestUtils.setField(bundesbankStrategy, "urlTemplate", "https://www.bundesbank.de/statistic-rmi/StatisticDownload?tsId=%s&its_csvFormat=en&mode=its");
+        when(repository.findLatestDateByCurrencyCode("USD")).thenReturn(Optional.of(LocalDate.of(2024, 1, 2)));
+
+        InputStream mockStream = new ByteArrayInputStream(mockedCSV.getBytes(StandardCharsets.UTF_8));
+        BundesbankExchangeRateFetchStrategy spyService = spy(bundesbankStrategy);
+        doReturn(ProviderResponse.ok(mockStream, null, null)).when(spyService).download(anyString(), any());
+
+        spyService.fetchAndStoreExchangeRates("USD");
+
+        ArgumentCaptor<List<ExchangeRate>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(1)).upsertAll(captor.capture());
+
+        List<ExchangeRate> savedRates = captor.getValue();
+        assertEquals(1, savedRates.size());
+        assertEquals(LocalDate.of(2024, 1, 3), savedRates.get(0).getDate());
+    }
+
+    @Test
+    void shouldSkipMissingValuesAndWriteInChunks() throws Exception {
+        String mockedCSV =
+                "\"Time series\",\"BBEX3.D.USD.EUR.BB.AC.000\"\n" +
+                        "\"Date\",\"Value\",\"Comment\"\n" +
+                        "\"2024-01-01\",\"1.1000\",\"\"\n" +
+                        "\"2024-01-02\",\".\",\"No value available\"\n" +
+                        "\"2024-01-03\",\"1.3000\",\"\"\r\n" +
+                        "\"2024-01-04\",\"1.4000\",\"\"\n";
+
+        ReflectionTestUtils.setField(bundesbankStrategy, "tsIdTemplate", "BBEX3.D.%s.EUR.BB.AC.000");
+        ReflectionTestUtils.setField(bundesbankStrategy, "urlTemplate", "https://www.bundesbank.de/statistic-rmi/StatisticDownload?tsId=%s&its_csvFormat=en&mode=its");
+        ReflectionTestUtils.setField(bundesbankStrategy, "batchSize", 2);
+
+        InputStream mockStream = new ByteArrayInputStream(mockedCSV.getBytes(StandardCharsets.UTF_8));
+        BundesbankExchangeRateFetchStrategy spyService = spy(bundesbankStrategy);
+        doReturn(ProviderResponse.ok(mockStream, null, null)).when(spyService).download(anyString(), any());
+
+        spyService.fetchAndStoreExchangeRates("USD");
+
+        ArgumentCaptor<List<ExchangeRate>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(2)).upsertAll(captor.capture());
+        assertEquals(2, captor.getAllValues().get(0).size());
+        assertEquals(1, captor.getAllValues().get(1).size());
+        assertEquals(LocalDate.of(2024, 1, 3), captor.getAllValues().get(0).get(1).getDate());
+    }
+
     @Test
     void shouldNotSaveWhenCurrencyNotSupported() throws Exception {
         // Test CSV with invalid data (no valid rates)
@@ -88,13 +170,13 @@ public class BundesBankExchangeRateFetchServiceTest {
         // Mock the URL stream
         InputStream mockStream = new ByteArrayInputStream(mockedCSV.getBytes(StandardCharsets.UTF_8));
         BundesbankExchangeRateFetchStrategy spyService = spy(bundesbankStrategy);
-        doReturn(mockStream).when(spyService).openUrlStream(anyString());
+        doReturn(ProviderResponse.ok(mockStream, null, null)).when(spyService).download(anyString(), any());
 
         // Execute the method under test
         spyService.fetchAndStoreExchangeRates("USD");
 
-        // Verify that saveAll is not called due to invalid data
-        verify(repository, never()).saveAll(anyList());
+        // Verify that upsertAll is not called due to invalid data
+        verify(repository, never()).upsertAll(anyList());
     }
 
     @Test
@@ -103,12 +185,126 @@ public class BundesBankExchangeRateFetchServiceTest {
         ReflectionTestUtils.setField(bundesbankStrategy, "urlTemplate", "https://www.bundesbank.de/statistic-rmi/StatisticDownload?tsId=%s&its_csvFormat=en&mode=its");
 
         BundesbankExchangeRateFetchStrategy spyService = spy(bundesbankStrategy);
-        doThrow(new IOException("Test IOException")).when(spyService).openUrlStream(anyString());
+        doThrow(new IOException("Test IOException")).when(spyService).download(anyString(), any());
 
-        // Call method - we're just testing it doesn't throw or crash
-        spyService.fetchAndStoreExchangeRates("USD");
+        // The failure is surfaced so the service can trip the circuit breaker and fall back
+        assertThrows(UncheckedIOException.class, () -> spyService.fetchAndStoreExchangeRates("USD"));
+
+        // Optionally verify no upsertAll occurred
+        verify(repository, never()).upsertAll(anyList());
+    }
+
+    @Test
+    void shouldAnswerNotServedWhenSeriesIsNotFound() throws Exception {
+        ReflectionTestUtils.setField(bundesbankStrategy, "tsIdTemplate", "BBEX3.D.%s.EUR.BB.AC.000");
+        ReflectionTestUtils.setField(bundesbankStrategy, "urlTemplate", "https://www.bundesbank.de/statistic-rmi/StatisticDownload?tsId=%s&its_csvFormat=en&mode=its");
+
+        BundesbankExchangeRateFetchStrategy spyService = spy(bundesbankStrategy);
+        doThrow(new ProviderStatusException(404, "https://www.bundesbank.de/statistic-rmi/StatisticDownload"))
+                .when(spyService).download(anyString(), any());
+
+        assertTrue(spyService.fetchAndStoreExchangeRates("XAU").isNotServed());
+        verify(repository, never()).upsertAll(anyList());
+    }
+
+    @Test
+    void shouldSurfaceServerErrors() throws Exception {
+        ReflectionTestUtils.setField(bundesbankStrategy, "tsIdTemplate", "BBEX3.D.%s.EUR.BB.AC.000");
+        ReflectionTestUtils.setField(bundesbankStrategy, "urlTemplate", "https://www.bundesbank.de/statistic-rmi/StatisticDownload?tsId=%s&its_csvFormat=en&mode=its");
+
+        BundesbankExchangeRateFetchStrategy spyService = spy(bundesbankStrategy);
+        doThrow(new ProviderStatusException(503, "https://www.bundesbank.de/statistic-rmi/StatisticDownload"))
+                .when(spyService).download(anyString(), any());
+
+        assertThrows(UncheckedIOException.class, () -> spyService.fetchAndStoreExchangeRates("USD"));
+    }
+
+    @Test
+    void shouldSkipParsingAndPersistenceWhenSeriesNotModified() throws Exception {
+        ReflectionTestUtils.setField(bundesbankStrategy, "tsIdTemplate", "BBEX3.D.%s.EUR.BB.AC.000");
+        ReflectionTestUtils.setField(bundesbankStrategy, "urlTemplate", "https://www.bundesbank.de/statistic-rmi/StatisticDownload?tsId=%s&its_csvFormat=en&mode=its");
+        SeriesValidator validator = new SeriesValidator("BBEX3.D.USD.EUR.BB.AC.000", "\"abc\"", "Mon, 01 Jan 2024 00:00:00 GMT");
+        when(repository.findLatestDateByCurrencyCode("USD")).thenReturn(Optional.of(LocalDate.of(2024, 1, 2)));
+        when(seriesValidatorRepository.findById("BBEX3.D.USD.EUR.BB.AC.000")).thenReturn(Optional.of(validator));
+
+        BundesbankExchangeRateFetchStrategy spyService = spy(bundesbankStrategy);
+        doReturn(ProviderResponse.notModified()).when(spyService).download(anyString(), eq(validator));
+
+        FetchResult result = spyService.fetchAndStoreExchangeRates("USD");
+
+        assertTrue(result.isUnchanged());
+        verify(repository, never()).upsertAll(anyList());
+        verify(seriesValidatorRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldStoreValidatorsAfterSuccessfulFetch() throws Exception {
+        String mockedCSV = "\"2024-01-01\",\"1.1000\"\n";
+        ReflectionTestUtils.setField(bundesbankStrategy, "tsIdTemplate", "BBEX3.D.%s.EUR.BB.AC.000");
+        ReflectionTestUtils.setField(bundesbankStrategy, "urlTemplate", "https://www.bundesbank.de/statistic-rmi/StatisticDownload?tsId=%s&its_csvFormat=en&mode=its");
+
+        InputStream mockStream = new ByteArrayInputStream(mockedCSV.getBytes(StandardCharsets.UTF_8));
+        BundesbankExchangeRateFetchStrategy spyService = spy(bundesbankStrategy);
+        // No rates stored yet, so the download must be unconditional
+        doReturn(ProviderResponse.ok(mockStream, "\"v2\"", null)).when(spyService).download(anyString(), eq(null));
+
+        FetchResult result = spyService.fetchAndStoreExchangeRates("USD");
+
+        assertEquals(1, result.getStored());
+        verify(seriesValidatorRepository, never()).findById(anyString());
+        verify(seriesValidatorRepository).save(new SeriesValidator("BBEX3.D.USD.EUR.BB.AC.000", "\"v2\"", null));
+    }
+
+    @Test
+    void shouldParseMultiSeriesDownloadInOnePass() throws Exception {
+        String mockedCSV =
+                ",BBEX3.D.USD.EUR.BB.AC.000,BBEX3.D.USD.EUR.BB.AC.000_FLAGS,BBEX3.D.JPY.EUR.BB.AC.000,BBEX3.D.JPY.EUR.BB.AC.000_FLAGS\n" +
+                        "unit,USD,,JPY,\n" +
+                        "unit multiplier,one,,one,\n" +
+                        "2024-01-01,1.1000,,158.00,\n" +
+                        "2024-01-02,1.2000,,.,No value available\n" +
+                        "2024-01-03,1.3000,,159.50,\n";
+
+        ReflectionTestUtils.setField(bundesbankStrategy, "tsIdTemplate", "BBEX3.D.%s.EUR.BB.AC.000");
+        ReflectionTestUtils.setField(bundesbankStrategy, "urlTemplate", "https://www.bundesbank.de/statistic-rmi/StatisticDownload?tsId=%s&its_csvFormat=en&mode=its");
+        when(repository.findLatestDateByCurrencyCode("USD")).thenReturn(Optional.of(LocalDate.of(2024, 1, 2)));
+
+        InputStream mockStream = new ByteArrayInputStream(mockedCSV.getBytes(StandardCharsets.UTF_8));
+        BundesbankExchangeRateFetchStrategy spyService = spy(bundesbankStrategy);
+        doReturn(ProviderResponse.ok(mockStream, "\"bulk\"", null)).when(spyService)
+                .download(eq("https://www.bundesbank.de/statistic-rmi/StatisticDownload?tsId=BBEX3.D.USD.EUR.BB.AC.000"
+                        + "&tsId=BBEX3.D.JPY.EUR.BB.AC.000&tsId=BBEX3.D.CHF.EUR.BB.AC.000&its_csvFormat=en&mode=its"), eq(null));
+
+        Map<String, FetchResult> results = spyService.fetchAndStoreExchangeRatesInBulk(List.of("USD", "JPY", "CHF"));
+
+        // CHF had no column in the download, so the caller fetches it on its own
+        assertEquals(Map.of("USD", 1, "JPY", 2), Map.of(
+                "USD", results.get("USD").getStored(), "JPY", results.get("JPY").getStored()));
+        assertFalse(results.containsKey("CHF"));
+        ArgumentCaptor<List<ExchangeRate>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(1)).upsertAll(captor.capture());
+        assertEquals(List.of("JPY", "USD", "JPY"), captor.getValue().stream()
+                .map(ExchangeRate::getCurrencyCode).collect(Collectors.toList()));
+        assertEquals(new BigDecimal("159.50"), captor.getValue().get(2).getExchangeRate());
+        verify(seriesValidatorRepository).save(argThat(validator -> validator.getSeriesKey().startsWith("BULK-")
+                && "\"bulk\"".equals(validator.getEtag())));
+    }
+
+    @Test
+    void shouldReportAllCurrenciesUnchangedWhenBulkDownloadNotModified() throws Exception {
+        ReflectionTestUtils.setField(bundesbankStrategy, "tsIdTemplate", "BBEX3.D.%s.EUR.BB.AC.000");
+        ReflectionTestUtils.setField(bundesbankStrategy, "urlTemplate", "https://www.bundesbank.de/statistic-rmi/StatisticDownload?tsId=%s&its_csvFormat=en&mode=its");
+        SeriesValidator validator = new SeriesValidator("BULK-key", "\"bulk\"", null);
+        when(repository.findLatestDateByCurrencyCode(anyString())).thenReturn(Optional.of(LocalDate.of(2024, 1, 2)));
+        when(seriesValidatorRepository.findById(startsWith("BULK-"))).thenReturn(Optional.of(validator));
+
+        BundesbankExchangeRateFetchStrategy spyService = spy(bundesbankStrategy);
+        doReturn(ProviderResponse.notModified()).when(spyService).download(anyString(), eq(validator));
+
+        Map<String, FetchResult> results = spyService.fetchAndStoreExchangeRatesInBulk(List.of("USD", "JPY"));
 
-        // Optionally verify no saveAll occurred
-        verify(repository, never()).saveAll(anyList());
+        assertTrue(results.get("USD").isUnchanged());
+        assertTrue(results.get("JPY").isUnchanged());
+        verify(repository, never()).upsertAll(anyList());
     }
 }
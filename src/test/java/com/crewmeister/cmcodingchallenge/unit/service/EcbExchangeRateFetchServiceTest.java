@@ -0,0 +1,142 @@
+package com.crewmeister.cmcodingchallenge.unit.service;
+
+import com.crewmeister.cmcodingchallenge.client.ProviderResponse;
+import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
+import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import com.crewmeister.cmcodingchallenge.strategy.EcbExchangeRateFetchStrategy;
+import com.crewmeister.cmcodingchallenge.strategy.FetchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EcbExchangeRateFetchServiceTest {
+
+    private static final String FIXTURE = "/ecb/eurofxref-hist.zip";
+
+    @InjectMocks
+    private EcbExchangeRateFetchStrategy ecbStrategy;
+
+    @Mock
+    ExchangeRateRepository repository;
+
+    private EcbExchangeRateFetchStrategy spyService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReflectionTestUtils.setField(ecbStrategy, "batchSize", 1000);
+        ReflectionTestUtils.setField(ecbStrategy, "url", "https://www.ecb.europa.eu/stats/eurofxref/eurofxref-hist.zip");
+        ReflectionTestUtils.setField(ecbStrategy, "historyMaxAgeMs", 600_000L);
+        spyService = spy(ecbStrategy);
+    }
+
+    @Test
+    void shouldStreamEveryRequestedCurrencyFromZippedHistoryInOnePass() throws Exception {
+        doReturn(fixture()).when(spyService).download(anyString(), any(), any());
+        when(repository.findLatestDateByCurrencyCode("USD")).thenReturn(Optional.of(LocalDate.of(2024, 1, 2)));
+
+        Map<String, FetchResult> results = spyService.fetchAndStoreExchangeRatesInBulk(List.of("USD", "GBP", "CYP", "CHF"));
+
+        verify(spyService, times(1)).download(anyString(), any(), any());
+        assertEquals(1, results.get("USD").getStored());
+        assertEquals(3, results.get("GBP").getStored());
+        // Only the 2007 row holds a CYP value, the others are N/A
+        assertEquals(1, results.get("CYP").getStored());
+        assertTrue(results.get("CHF").isNotServed());
+
+        ArgumentCaptor<List<ExchangeRate>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository).upsertAll(captor.capture());
+        List<ExchangeRate> saved = captor.getValue();
+        assertEquals(List.of("USD", "GBP", "GBP", "CYP", "GBP"),
+                saved.stream().map(ExchangeRate::getCurrencyCode).collect(Collectors.toList()));
+        assertEquals(new BigDecimal("1.0919"), saved.get(0).getExchangeRate());
+        assertEquals(LocalDate.of(2024, 1, 3), saved.get(0).getDate());
+        assertTrue(saved.stream().noneMatch(rate -> rate.getCurrencyCode().equals("JPY")));
+    }
+
+    @Test
+    void shouldFetchSingleCurrencyFromHistory() throws Exception {
+        doReturn(fixture()).when(spyService).download(anyString(), any(), any());
+
+        FetchResult result = spyService.fetchAndStoreExchangeRates("JPY");
+
+        assertEquals(3, result.getStored());
+    }
+
+    @Test
+    void shouldParseHistoryOnceAndAnswerUnquotedCurrenciesWithoutDownloading() throws Exception {
+        doReturn(fixture()).when(spyService).download(anyString(), any(), any());
+
+        spyService.fetchAndStoreExchangeRatesInBulk(List.of("USD", "GBP"));
+        spyService.fetchAndStoreExchangeRatesInBulk(List.of("JPY", "CHF"));
+        FetchResult chf = spyService.fetchAndStoreExchangeRates("CHF");
+        FetchResult jpy = spyService.fetchAndStoreExchangeRates("JPY");
+
+        verify(spyService, times(1)).download(anyString(), any(), any());
+        assertTrue(chf.isNotServed());
+        assertEquals(3, jpy.getStored());
+    }
+
+    @Test
+    void shouldReuseParsedHistoryWhenExpiredFileIsNotModified() throws Exception {
+        ReflectionTestUtils.setField(spyService, "historyMaxAgeMs", 0L);
+        doReturn(fixture()).when(spyService).download(anyString(), isNull(), isNull());
+        doReturn(ProviderResponse.notModified()).when(spyService).download(anyString(), eq("\"e1\""), isNull());
+
+        spyService.fetchAndStoreExchangeRates("USD");
+        FetchResult result = spyService.fetchAndStoreExchangeRates("USD");
+
+        verify(spyService).download(anyString(), eq("\"e1\""), isNull());
+        assertEquals(3, result.getStored());
+    }
+
+    @Test
+    void shouldStoreNothingWhenDownloadIsNotAZippedCsv() throws Exception {
+        doReturn(ProviderResponse.ok(
+                new ByteArrayInputStream("Date,USD\n2024-01-03,1.0919\n".getBytes(StandardCharsets.UTF_8)), null, null))
+                .when(spyService).download(anyString(), any(), any());
+
+        Map<String, FetchResult> results = spyService.fetchAndStoreExchangeRatesInBulk(List.of("USD", "GBP"));
+
+        assertTrue(results.isEmpty());
+        verify(repository, never()).upsertAll(anyList());
+    }
+
+    @Test
+    void shouldStoreNothingWhenDownloadFails() throws Exception {
+        doThrow(new IOException("HTTP 503")).when(spyService).download(anyString(), any(), any());
+
+        assertThrows(UncheckedIOException.class, () -> spyService.fetchAndStoreExchangeRates("USD"));
+        verify(repository, never()).upsertAll(anyList());
+    }
+
+    private ProviderResponse fixture() {
+        return ProviderResponse.ok(getClass().getResourceAsStream(FIXTURE), "\"e1\"", null);
+    }
+}
@@ -2,12 +2,24 @@ package com.crewmeister.cmcodingchallenge.unit.service;
 
 import com.crewmeister.cmcodingchallenge.service.ExchangeRateScheduler;
 import com.crewmeister.cmcodingchallenge.service.ExchangeRateService;
+import com.crewmeister.cmcodingchallenge.service.WarmUpStatus;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -16,6 +28,9 @@ public class ExchangeRateSchedulerTest {
     @Mock
     private ExchangeRateService exchangeRateService;
 
+    @Spy
+    private WarmUpStatus warmUpStatus = new WarmUpStatus();
+
     @InjectMocks
     private ExchangeRateScheduler scheduler;
 
@@ -27,4 +42,95 @@ public class ExchangeRateSchedulerTest {
         // Then
         verify(exchangeRateService, times(1)).fetchAndStoreExchangeRatesForAllCurrencies();
     }
+
+    @Test
+    void runOnStartup_shouldRestoreSnapshotBeforeFetching() {
+        scheduler.runOnStartup();
+
+        InOrder inOrder = inOrder(exchangeRateService);
+        inOrder.verify(exchangeRateService).restoreFromSnapshot();
+        inOrder.verify(exchangeRateService).fetchAndStoreExchangeRatesForAllCurrencies();
+    }
+
+    @Test
+    void runOnStartup_shouldBecomeUsableOnlyAfterFetchingWithoutSnapshot() {
+        doAnswer(invocation -> {
+            assertEquals(WarmUpStatus.Phase.FETCHING, warmUpStatus.getPhase());
+            assertFalse(warmUpStatus.isDataUsable());
+            return null;
+        }).when(exchangeRateService).fetchAndStoreExchangeRatesForAllCurrencies();
+        when(exchangeRateService.getStoredRateCount()).thenReturn(12L);
+
+        scheduler.runOnStartup();
+
+        assertEquals(WarmUpStatus.Phase.COMPLETED, warmUpStatus.getPhase());
+        assertTrue(warmUpStatus.isDataUsable());
+        assertEquals(12L, warmUpStatus.getStoredRates());
+    }
+
+    @Test
+    void runOnStartup_shouldStayNotReadyWhenIngestionStoredNothing() {
+        scheduler.runOnStartup();
+
+        assertEquals(WarmUpStatus.Phase.WAITING_FOR_DATA, warmUpStatus.getPhase());
+        assertFalse(warmUpStatus.isDataUsable());
+    }
+
+    @Test
+    void retryWarmUp_shouldIngestUntilRatesAreStored() {
+        when(exchangeRateService.getStoredRateCount()).thenReturn(0L, 5L);
+        scheduler.runOnStartup();
+
+        scheduler.retryWarmUp();
+        scheduler.retryWarmUp();
+
+        verify(exchangeRateService, times(2)).fetchAndStoreExchangeRatesForAllCurrencies();
+        assertEquals(WarmUpStatus.Phase.COMPLETED, warmUpStatus.getPhase());
+        assertTrue(warmUpStatus.isDataUsable());
+    }
+
+    @Test
+    void runOnStartup_shouldBeUsableWhileFetchingAfterRestoringSnapshot() {
+        when(exchangeRateService.restoreFromSnapshot()).thenReturn(42L);
+        doAnswer(invocation -> {
+            assertTrue(warmUpStatus.isDataUsable());
+            return null;
+        }).when(exchangeRateService).fetchAndStoreExchangeRatesForAllCurrencies();
+
+        scheduler.runOnStartup();
+
+        assertEquals(42L, warmUpStatus.getRestoredRates());
+    }
+
+    @Test
+    void runOnStartup_shouldServeRatesStoredSoFarWhenIngestionFails() {
+        doThrow(new RuntimeException("Failed")).when(exchangeRateService).fetchAndStoreExchangeRatesForAllCurrencies();
+        when(exchangeRateService.getStoredRateCount()).thenReturn(3L);
+
+        scheduler.runOnStartup();
+
+        assertEquals(WarmUpStatus.Phase.COMPLETED, warmUpStatus.getPhase());
+        assertTrue(warmUpStatus.isDataUsable());
+    }
+
+    @Test
+    void retryWarmUp_shouldDoNothingOnceDataIsUsable() {
+        when(exchangeRateService.getStoredRateCount()).thenReturn(3L);
+        scheduler.runOnStartup();
+
+        scheduler.retryWarmUp();
+
+        verify(exchangeRateService, times(1)).fetchAndStoreExchangeRatesForAllCurrencies();
+    }
+
+    @Test
+    void runOnStartup_shouldSkipIngestionWhenWarmUpDisabled() {
+        ReflectionTestUtils.setField(scheduler, "warmUpEnabled", false);
+
+        scheduler.runOnStartup();
+
+        verify(exchangeRateService, never()).restoreFromSnapshot();
+        verify(exchangeRateService, never()).fetchAndStoreExchangeRatesForAllCurrencies();
+        assertTrue(warmUpStatus.isDataUsable());
+    }
 }
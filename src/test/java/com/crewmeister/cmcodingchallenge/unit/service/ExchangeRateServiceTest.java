@@ -1,27 +1,63 @@
 package com.crewmeister.cmcodingchallenge.unit.service;
 
+import com.crewmeister.cmcodingchallenge.cache.CrossRateCache;
+import com.crewmeister.cmcodingchallenge.cache.CurrencyListCache;
+import com.crewmeister.cmcodingchallenge.client.ProviderStatusException;
 import com.crewmeister.cmcodingchallenge.config.SupportedCurrenciesConfig;
+import com.crewmeister.cmcodingchallenge.constants.Provider;
+import com.crewmeister.cmcodingchallenge.currency.CurrencyRegistry;
+import com.crewmeister.cmcodingchallenge.dto.BatchConversionResultDTO;
+import com.crewmeister.cmcodingchallenge.dto.CacheStatsDTO;
+import com.crewmeister.cmcodingchallenge.dto.ConversionRequestDTO;
 import com.crewmeister.cmcodingchallenge.dto.ConversionResultDTO;
+import com.crewmeister.cmcodingchallenge.dto.CrossConversionResultDTO;
 import com.crewmeister.cmcodingchallenge.dto.ExchangeRateDTO;
+import com.crewmeister.cmcodingchallenge.dto.RateAggregateDTO;
 import com.crewmeister.cmcodingchallenge.entity.ExchangeRate;
 import com.crewmeister.cmcodingchallenge.exception.ResourceNotFoundException;
+import com.crewmeister.cmcodingchallenge.index.ExchangeRateIndex;
+import com.crewmeister.cmcodingchallenge.metrics.IngestionMetrics;
 import com.crewmeister.cmcodingchallenge.repository.ExchangeRateRepository;
+import com.crewmeister.cmcodingchallenge.resilience.ProviderCircuitBreakers;
+import com.crewmeister.cmcodingchallenge.service.DatasetVersion;
+import com.crewmeister.cmcodingchallenge.snapshot.ExchangeRateSnapshot;
 import com.crewmeister.cmcodingchallenge.service.ExchangeRateService;
+import com.crewmeister.cmcodingchallenge.strategy.ExchangeRateFetchStrategy;
+import com.crewmeister.cmcodingchallenge.strategy.FetchResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +69,32 @@ public class ExchangeRateServiceTest {
     @Mock
     private ExchangeRateRepository repository;
 
+    @Spy
+    private CurrencyRegistry currencyRegistry = new CurrencyRegistry(new SupportedCurrenciesConfig());
+
+    @Spy
+    private ExchangeRateIndex exchangeRateIndex = new ExchangeRateIndex();
+
+    @Spy
+    private CurrencyListCache currencyListCache = new CurrencyListCache();
+
+    @Spy
+    private CrossRateCache crossRateCache = new CrossRateCache();
+
+    @Mock
+    private ExchangeRateSnapshot exchangeRateSnapshot;
+
+    @Spy
+    private DatasetVersion datasetVersion = new DatasetVersion();
+
+    @Spy
+    private ProviderCircuitBreakers circuitBreakers = new ProviderCircuitBreakers();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private IngestionMetrics ingestionMetrics = new IngestionMetrics(meterRegistry);
+
     @InjectMocks
     private ExchangeRateService rateService;
 
@@ -44,6 +106,19 @@ public class ExchangeRateServiceTest {
         assertEquals(currencies, result);
     }
 
+    @Test
+    void shouldServeCurrenciesFromCacheAfterFirstLoadTest(){
+        List<String> currencies = List.of("AUD","BRL");
+        when(repository.findDistinctCurrencies()).thenReturn(currencies);
+        rateService.getAllCurrencies();
+        List<String> result = rateService.getAllCurrencies();
+        assertEquals(currencies, result);
+        verify(repository, times(1)).findDistinctCurrencies();
+        CacheStatsDTO stats = rateService.getCacheStats().get(0);
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
     @Test
     void shouldReturnErrorIfAllCurrenciesAreEmptyTest(){
         List<String> currencies = List.of("","");
@@ -122,7 +197,6 @@ public class ExchangeRateServiceTest {
         BigDecimal amount = BigDecimal.valueOf(100);
         ExchangeRate usdRate = new ExchangeRate(1L,"USD", BigDecimal.valueOf(1.91),date);
         when(repository.findByCurrencyCodeAndDate(currency,date)).thenReturn(Optional.of(usdRate));
-        when(config.getCurrencies()).thenReturn(List.of("USD", "EUR", "GBP"));
         ConversionResultDTO expected = new ConversionResultDTO(currency,amount,BigDecimal.valueOf(52.36),date);
         ConversionResultDTO result = rateService.convertAmountToEuro(amount,currency,date);
         assertEquals(expected,result);
@@ -158,7 +232,6 @@ public class ExchangeRateServiceTest {
 
     @Test
     void shoudReturnExceptionIfCurrencyIsInvalid() {
-        when(config.getCurrencies()).thenReturn(List.of("USD", "EUR", "GBP"));
 
         Exception ex = assertThrows(IllegalArgumentException.class, () ->
                 rateService.convertAmountToEuro(BigDecimal.TEN, "XXX", LocalDate.now())
@@ -172,9 +245,545 @@ public class ExchangeRateServiceTest {
         LocalDate date = LocalDate.of(1999, 01, 17);
         String currency = "USD";
         BigDecimal amount = BigDecimal.valueOf(100);
-        when(config.getCurrencies()).thenReturn(List.of("USD", "EUR", "GBP"));
         when(repository.findByCurrencyCodeAndDate(currency,date)).thenReturn(Optional.empty());
         assertThrows(ResourceNotFoundException.class,()->rateService.convertAmountToEuro(amount,currency,date));
     }
 
+    @Test
+    void shouldConvertFromIndexWithoutQueryingRepositoryTest(){
+        LocalDate date = LocalDate.of(1999, 01, 17);
+        exchangeRateIndex.replace("USD", List.of(new ExchangeRate(1L,"USD", BigDecimal.valueOf(1.91),date)));
+        ConversionResultDTO result = rateService.convertAmountToEuro(BigDecimal.valueOf(100), "usd", date);
+        assertEquals(BigDecimal.valueOf(52.36), result.getConvertedToEUR());
+        assertEquals("USD", result.getCurrency());
+        verify(repository, never()).findByCurrencyCodeAndDate(anyString(), any());
+    }
+
+    @Test
+    void shouldConvertAsOfPreviousBusinessDayFromIndexTest(){
+        LocalDate friday = LocalDate.of(2024, 1, 5);
+        LocalDate sunday = LocalDate.of(2024, 1, 7);
+        ReflectionTestUtils.setField(rateService, "asOfMaxDays", 7);
+        exchangeRateIndex.replace("USD", List.of(new ExchangeRate(1L,"USD", BigDecimal.valueOf(1.91),friday)));
+
+        ConversionResultDTO result = rateService.convertAmountToEuroAsOf(BigDecimal.valueOf(100), "USD", sunday);
+
+        assertEquals(BigDecimal.valueOf(52.36), result.getConvertedToEUR());
+        assertEquals(sunday, result.getDate());
+        assertEquals(friday, result.getRateDate());
+        verify(repository, never()).findFirstByCurrencyCodeAndDateBetweenOrderByDateDesc(anyString(), any(), any());
+    }
+
+    @Test
+    void shouldConvertAsOfFromRepositoryWhenNotIndexedTest(){
+        LocalDate friday = LocalDate.of(2024, 1, 5);
+        LocalDate sunday = LocalDate.of(2024, 1, 7);
+        ReflectionTestUtils.setField(rateService, "asOfMaxDays", 7);
+        when(repository.findFirstByCurrencyCodeAndDateBetweenOrderByDateDesc("USD", sunday.minusDays(7), sunday))
+                .thenReturn(Optional.of(new ExchangeRate(1L,"USD", BigDecimal.valueOf(1.91),friday)));
+
+        ConversionResultDTO result = rateService.convertAmountToEuroAsOf(BigDecimal.valueOf(100), "USD", sunday);
+
+        assertEquals(friday, result.getRateDate());
+    }
+
+    @Test
+    void shouldNotConvertAsOfBeyondMaxLookbackTest(){
+        LocalDate date = LocalDate.of(2024, 1, 20);
+        ReflectionTestUtils.setField(rateService, "asOfMaxDays", 7);
+        exchangeRateIndex.replace("USD", List.of(new ExchangeRate(1L,"USD", BigDecimal.valueOf(1.91),LocalDate.of(2024, 1, 5))));
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> rateService.convertAmountToEuroAsOf(BigDecimal.valueOf(100), "USD", date));
+    }
+
+    @Test
+    void shouldReturnCurrencyRangeFromIndexInDateOrderTest(){
+        exchangeRateIndex.replace("USD", List.of(
+                new ExchangeRate(1L,"USD", new BigDecimal("1.10"),LocalDate.of(2024, 1, 2)),
+                new ExchangeRate(2L,"USD", new BigDecimal("1.20"),LocalDate.of(2024, 1, 3)),
+                new ExchangeRate(3L,"USD", new BigDecimal("1.30"),LocalDate.of(2024, 1, 4)),
+                new ExchangeRate(4L,"USD", new BigDecimal("1.40"),LocalDate.of(2024, 1, 8))));
+
+        List<ExchangeRateDTO> rates = rateService.getExchangeRatesForCurrency("usd", LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 7));
+
+        assertEquals(2, rates.size());
+        assertEquals(LocalDate.of(2024, 1, 3), rates.get(0).getDate());
+        assertEquals(new BigDecimal("1.2"), rates.get(0).getRate());
+        assertEquals(LocalDate.of(2024, 1, 4), rates.get(1).getDate());
+        verify(repository, never()).findByCurrencyCodeAndDateBetweenOrderByDateAsc(anyString(), any(), any());
+    }
+
+    @Test
+    void shouldReturnCurrencyRangeFromRepositoryWhenNotIndexedTest(){
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        when(repository.findByCurrencyCodeAndDateBetweenOrderByDateAsc("USD", from, LocalDate.now()))
+                .thenReturn(List.of(new ExchangeRate(1L,"USD", new BigDecimal("1.10"),LocalDate.of(2024, 1, 2))));
+
+        List<ExchangeRateDTO> rates = rateService.getExchangeRatesForCurrency("USD", from, null);
+
+        assertEquals(1, rates.size());
+        assertEquals(new BigDecimal("1.10"), rates.get(0).getRate());
+    }
+
+    @Test
+    void shouldRejectInvalidCurrencyRangeTest(){
+
+        assertThrows(IllegalArgumentException.class, () -> rateService.getExchangeRatesForCurrency("XXX", null, null));
+        assertThrows(IllegalArgumentException.class, () -> rateService.getExchangeRatesForCurrency("USD",
+                LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1)));
+        assertThrows(ResourceNotFoundException.class, () -> rateService.getExchangeRatesForCurrency("GBP",
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)));
+    }
+
+    @Test
+    void shouldAggregateIndexedRatesPerMonthTest(){
+        exchangeRateIndex.replace("USD", List.of(
+                new ExchangeRate(1L,"USD", new BigDecimal("1.10"),LocalDate.of(2024, 1, 30)),
+                new ExchangeRate(2L,"USD", new BigDecimal("1.30"),LocalDate.of(2024, 1, 31)),
+                new ExchangeRate(3L,"USD", new BigDecimal("1.20"),LocalDate.of(2024, 3, 1)),
+                new ExchangeRate(4L,"USD", new BigDecimal("1.00"),LocalDate.of(2024, 3, 4)),
+                new ExchangeRate(5L,"USD", new BigDecimal("1.50"),LocalDate.of(2024, 3, 5))));
+
+        List<RateAggregateDTO> aggregates = rateService.getExchangeRateAggregates("USD",
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 4), "month");
+
+        assertEquals(2, aggregates.size());
+        assertEquals(new RateAggregateDTO("USD", LocalDate.of(2024, 1, 30), LocalDate.of(2024, 1, 31), 2,
+                new BigDecimal("1.1"), new BigDecimal("1.3"), new BigDecimal("1.2")), aggregates.get(0));
+        assertEquals(new RateAggregateDTO("USD", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 4), 2,
+                BigDecimal.ONE, new BigDecimal("1.2"), new BigDecimal("1.1")), aggregates.get(1));
+        verify(repository, never()).findByCurrencyCodeAndDateBetweenOrderByDateAsc(anyString(), any(), any());
+    }
+
+    @Test
+    void shouldAggregateStoredRatesWhenNotIndexedTest(){
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 12, 31);
+        when(repository.findByCurrencyCodeAndDateBetweenOrderByDateAsc("USD", from, to)).thenReturn(List.of(
+                new ExchangeRate(1L,"USD", new BigDecimal("1.10"),LocalDate.of(2024, 1, 2)),
+                new ExchangeRate(2L,"USD", new BigDecimal("1.20"),LocalDate.of(2024, 6, 3))));
+
+        List<RateAggregateDTO> aggregates = rateService.getExchangeRateAggregates("USD", from, to, null);
+
+        assertEquals(1, aggregates.size());
+        assertEquals(2, aggregates.get(0).getCount());
+        assertEquals(new BigDecimal("1.15"), aggregates.get(0).getAverage());
+    }
+
+    @Test
+    void shouldRejectUnknownAggregatePeriodTest(){
+
+        assertThrows(IllegalArgumentException.class,
+                () -> rateService.getExchangeRateAggregates("USD", null, null, "week"));
+    }
+
+    @Test
+    void shouldConvertBetweenCurrenciesViaEuroAndCacheCrossRateTest(){
+        LocalDate date = LocalDate.of(2024, 1, 2);
+        exchangeRateIndex.replace("USD", List.of(new ExchangeRate(1L,"USD", new BigDecimal("1.10"),date)));
+        when(repository.findByCurrencyCodeAndDate("JPY", date))
+                .thenReturn(Optional.of(new ExchangeRate(2L,"JPY", new BigDecimal("165.00"),date)));
+
+        CrossConversionResultDTO first = rateService.convertAmount(new BigDecimal("100"), "USD", "JPY", date);
+        CrossConversionResultDTO second = rateService.convertAmount(new BigDecimal("200"), "USD", "JPY", date);
+
+        assertEquals(new BigDecimal("150"), first.getRate());
+        assertEquals(new BigDecimal("15000.00"), first.getConvertedAmount());
+        assertEquals(new BigDecimal("30000.00"), second.getConvertedAmount());
+        verify(repository, times(1)).findByCurrencyCodeAndDate("JPY", date);
+        CacheStatsDTO stats = rateService.getCacheStats().get(1);
+        assertEquals(CrossRateCache.NAME, stats.getName());
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    void shouldConvertIntoAndOutOfEuroAsCrossConversionTest(){
+        LocalDate date = LocalDate.of(2024, 1, 2);
+        exchangeRateIndex.replace("USD", List.of(new ExchangeRate(1L,"USD", new BigDecimal("1.25"),date)));
+
+        assertEquals(new BigDecimal("80.00"),
+                rateService.convertAmount(new BigDecimal("100"), "USD", "EUR", date).getConvertedAmount());
+        assertEquals(new BigDecimal("125.00"),
+                rateService.convertAmount(new BigDecimal("100"), "EUR", "USD", date).getConvertedAmount());
+        assertEquals(new BigDecimal("100.00"),
+                rateService.convertAmount(new BigDecimal("100"), "USD", "USD", date).getConvertedAmount());
+    }
+
+    @Test
+    void shouldNotCacheCrossRateWhenOneSideIsMissingTest(){
+        LocalDate date = LocalDate.of(2024, 1, 2);
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> rateService.convertAmount(new BigDecimal("100"), "USD", "JPY", date));
+        assertThrows(IllegalArgumentException.class,
+                () -> rateService.convertAmount(new BigDecimal("100"), "USD", "XXX", date));
+        assertThrows(ResourceNotFoundException.class,
+                () -> rateService.convertAmount(new BigDecimal("100"), "USD", "JPY", date));
+        assertEquals(0, rateService.getCacheStats().get(1).getHits());
+    }
+
+    @Test
+    void shouldConvertBatchInInputOrderWithPerItemErrorsTest(){
+        LocalDate date = LocalDate.of(1999, 01, 17);
+        ReflectionTestUtils.setField(rateService, "maxBatchSize", 100);
+        exchangeRateIndex.replace("USD", List.of(new ExchangeRate(1L,"USD", BigDecimal.valueOf(1.91),date)));
+        when(repository.findByCurrencyCodeInAndDateIn(anyCollection(), anyCollection()))
+                .thenReturn(List.of(new ExchangeRate(2L,"GBP", BigDecimal.valueOf(0.5),date)));
+
+        List<BatchConversionResultDTO> results = rateService.convertBatch(List.of(
+                new ConversionRequestDTO("GBP", BigDecimal.TEN, date),
+                new ConversionRequestDTO("XXX", BigDecimal.TEN, date),
+                new ConversionRequestDTO("USD", BigDecimal.valueOf(100), date),
+                new ConversionRequestDTO("GBP", BigDecimal.ONE, date),
+                new ConversionRequestDTO("GBP", BigDecimal.ONE, date.minusDays(1))));
+
+        assertEquals(5, results.size());
+        assertEquals(0, BigDecimal.valueOf(20).compareTo(results.get(0).getResult().getConvertedToEUR()));
+        assertEquals("Invalid currency code.", results.get(1).getError());
+        assertNull(results.get(1).getResult());
+        assertEquals(BigDecimal.valueOf(52.36), results.get(2).getResult().getConvertedToEUR());
+        assertEquals(0, BigDecimal.valueOf(2).compareTo(results.get(3).getResult().getConvertedToEUR()));
+        assertEquals("Rate not found for currency GBP on 1999-01-16", results.get(4).getError());
+        assertEquals(4, results.get(4).getIndex());
+        verify(repository, times(1)).findByCurrencyCodeInAndDateIn(anyCollection(), anyCollection());
+    }
+
+    @Test
+    void shouldReportNullBatchItemAsItemErrorTest(){
+        LocalDate date = LocalDate.of(1999, 01, 17);
+        ReflectionTestUtils.setField(rateService, "maxBatchSize", 100);
+        exchangeRateIndex.replace("USD", List.of(new ExchangeRate(1L,"USD", BigDecimal.valueOf(2),date)));
+
+        List<BatchConversionResultDTO> results = rateService.convertBatch(Arrays.asList(
+                null, new ConversionRequestDTO("USD", BigDecimal.TEN, date)));
+
+        assertEquals("Item must not be null.", results.get(0).getError());
+        assertEquals(0, results.get(0).getIndex());
+        assertEquals(0, BigDecimal.valueOf(5).compareTo(results.get(1).getResult().getConvertedToEUR()));
+    }
+
+    @Test
+    void shouldRejectEmptyOrOversizedBatchTest(){
+        ReflectionTestUtils.setField(rateService, "maxBatchSize", 1);
+        ConversionRequestDTO item = new ConversionRequestDTO("USD", BigDecimal.ONE, LocalDate.of(1999, 01, 17));
+        assertThrows(IllegalArgumentException.class, () -> rateService.convertBatch(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> rateService.convertBatch(List.of(item, item)));
+    }
+
+    @Test
+    void shouldRefreshIndexAfterFetchingCurrencyTest(){
+        LocalDate date = LocalDate.of(1999, 01, 17);
+        ExchangeRateFetchStrategy strategy = mockStrategy(Provider.BUNDESBANK);
+        ReflectionTestUtils.setField(rateService, "strategies", List.of(strategy));
+        when(strategy.fetchAndStoreExchangeRates("USD")).thenReturn(FetchResult.stored(1));
+        when(repository.findByCurrencyCodeOrderByDateAsc("USD"))
+                .thenReturn(List.of(new ExchangeRate(1L,"USD", BigDecimal.valueOf(1.91),date)));
+        rateService.fetchAndStoreExchangeRates("USD");
+        assertEquals(ExchangeRateIndex.toScaled(BigDecimal.valueOf(1.91)), exchangeRateIndex.findScaledRate("USD", date));
+    }
+
+    @Test
+    void shouldSkipIndexRefreshForUnchangedSeriesTest(){
+        LocalDate date = LocalDate.of(1999, 01, 17);
+        ExchangeRateFetchStrategy strategy = mockStrategy(Provider.BUNDESBANK);
+        ReflectionTestUtils.setField(rateService, "strategies", List.of(strategy));
+        when(strategy.fetchAndStoreExchangeRates("USD")).thenReturn(FetchResult.unchanged());
+        exchangeRateIndex.replace("USD", List.of(new ExchangeRate(1L,"USD", BigDecimal.valueOf(1.91),date)));
+
+        FetchResult result = rateService.fetchAndStoreExchangeRates("USD");
+
+        assertTrue(result.isUnchanged());
+        verify(repository, never()).findByCurrencyCodeOrderByDateAsc(anyString());
+    }
+
+    @Test
+    void shouldFetchAllCurrenciesInParallelAndIsolateFailuresTest() throws Exception {
+        ExchangeRateFetchStrategy strategy = mockStrategy(Provider.BUNDESBANK);
+        ReflectionTestUtils.setField(rateService, "strategies", List.of(strategy));
+        ReflectionTestUtils.setField(rateService, "ingestionConcurrency", 2);
+        when(config.getCurrencies()).thenReturn(List.of("USD", "EUR", "GBP", "JPY"));
+        doThrow(new RuntimeException("Provider down")).when(strategy).fetchAndStoreExchangeRates("GBP");
+        when(strategy.fetchAndStoreExchangeRates("USD")).thenReturn(FetchResult.stored(5));
+        when(strategy.fetchAndStoreExchangeRates("JPY")).thenReturn(FetchResult.unchanged());
+        long versionBefore = datasetVersion.getVersion();
+
+        rateService.startIngestionExecutor();
+        try {
+            rateService.fetchAndStoreExchangeRatesForAllCurrencies();
+        } finally {
+            rateService.stopIngestionExecutor();
+        }
+
+        verify(strategy).fetchAndStoreExchangeRates("USD");
+        verify(strategy).fetchAndStoreExchangeRates("GBP");
+        verify(strategy).fetchAndStoreExchangeRates("JPY");
+        verify(strategy, never()).fetchAndStoreExchangeRates("EUR");
+        assertTrue(datasetVersion.getVersion() > versionBefore);
+    }
+
+    @Test
+    void shouldFetchCurrenciesInBulkChunksAndFallBackForUncoveredOnesTest() throws Exception {
+        ExchangeRateFetchStrategy strategy = mockStrategy(Provider.BUNDESBANK);
+        ReflectionTestUtils.setField(rateService, "strategies", List.of(strategy));
+        ReflectionTestUtils.setField(rateService, "ingestionConcurrency", 2);
+        when(config.getCurrencies()).thenReturn(List.of("USD", "EUR", "GBP", "JPY"));
+        when(strategy.getMaxBulkSize()).thenReturn(2);
+        when(strategy.fetchAndStoreExchangeRatesInBulk(List.of("USD", "GBP")))
+                .thenReturn(Map.of("USD", FetchResult.stored(5), "GBP", FetchResult.stored(2)));
+        when(strategy.fetchAndStoreExchangeRates("JPY")).thenReturn(FetchResult.stored(1));
+        long versionBefore = datasetVersion.getVersion();
+
+        rateService.startIngestionExecutor();
+        try {
+            rateService.fetchAndStoreExchangeRatesForAllCurrencies();
+        } finally {
+            rateService.stopIngestionExecutor();
+        }
+
+        // The last chunk holds a single currency, which is fetched on its own
+        verify(strategy).fetchAndStoreExchangeRatesInBulk(List.of("USD", "GBP"));
+        verify(strategy, never()).fetchAndStoreExchangeRates("USD");
+        verify(strategy).fetchAndStoreExchangeRates("JPY");
+        verify(repository).findByCurrencyCodeOrderByDateAsc("GBP");
+        assertTrue(datasetVersion.getVersion() > versionBefore);
+        assertEquals(1, meterRegistry.get("fx.ingestion.bulk").tag("outcome", "stored").timer().count());
+        assertEquals(1, meterRegistry.get("fx.ingestion.fetch").tags("currency", "JPY", "outcome", "stored").timer().count());
+        assertEquals(5.0, meterRegistry.get("fx.ingestion.rows").tag("currency", "USD").counter().count());
+        assertEquals(1, meterRegistry.get("fx.ingestion.run").timer().count());
+    }
+
+    @Test
+    void shouldOfferChunkToNextBulkProviderWhenPreferredOneFailsTest() throws Exception {
+        ExchangeRateFetchStrategy bundesbank = mockStrategy(Provider.BUNDESBANK);
+        ExchangeRateFetchStrategy ecb = mockStrategy(Provider.ECB);
+        ReflectionTestUtils.setField(rateService, "strategies", List.of(bundesbank, ecb));
+        ReflectionTestUtils.setField(rateService, "ingestionConcurrency", 2);
+        when(config.getCurrencies()).thenReturn(List.of("USD", "GBP"));
+        when(bundesbank.getMaxBulkSize()).thenReturn(40);
+        when(bundesbank.fetchAndStoreExchangeRatesInBulk(List.of("USD", "GBP"))).thenThrow(new RuntimeException("Provider down"));
+        when(ecb.getMaxBulkSize()).thenReturn(Integer.MAX_VALUE);
+        when(ecb.fetchAndStoreExchangeRatesInBulk(List.of("USD", "GBP")))
+                .thenReturn(Map.of("USD", FetchResult.stored(3), "GBP", FetchResult.stored(4)));
+
+        rateService.startIngestionExecutor();
+        try {
+            rateService.fetchAndStoreExchangeRatesForAllCurrencies();
+        } finally {
+            rateService.stopIngestionExecutor();
+        }
+
+        verify(bundesbank, never()).fetchAndStoreExchangeRates(anyString());
+        verify(ecb, never()).fetchAndStoreExchangeRates(anyString());
+        assertEquals(1, meterRegistry.get("fx.ingestion.bulk").tags("provider", "BUNDESBANK", "outcome", "failure").timer().count());
+        verify(repository).findByCurrencyCodeOrderByDateAsc("USD");
+        verify(repository).findByCurrencyCodeOrderByDateAsc("GBP");
+    }
+
+    @Test
+    void shouldNotAskProviderAgainForCurrenciesItsBulkDownloadDoesNotServeTest() throws Exception {
+        ExchangeRateFetchStrategy bundesbank = mockStrategy(Provider.BUNDESBANK);
+        ExchangeRateFetchStrategy ecb = mockStrategy(Provider.ECB);
+        ReflectionTestUtils.setField(rateService, "strategies", List.of(bundesbank, ecb));
+        ReflectionTestUtils.setField(rateService, "ingestionConcurrency", 2);
+        when(config.getCurrencies()).thenReturn(List.of("USD", "ISK", "XAU"));
+        when(bundesbank.getMaxBulkSize()).thenReturn(40);
+        when(bundesbank.fetchAndStoreExchangeRatesInBulk(List.of("USD", "ISK", "XAU"))).thenThrow(new RuntimeException("Provider down"));
+        when(ecb.getMaxBulkSize()).thenReturn(Integer.MAX_VALUE);
+        when(ecb.fetchAndStoreExchangeRatesInBulk(List.of("USD", "ISK", "XAU"))).thenReturn(Map.of(
+                "USD", FetchResult.stored(3), "ISK", FetchResult.notServed(), "XAU", FetchResult.notServed()));
+        when(bundesbank.fetchAndStoreExchangeRates("ISK")).thenReturn(FetchResult.stored(2));
+        when(bundesbank.fetchAndStoreExchangeRates("XAU")).thenReturn(FetchResult.notServed());
+
+        rateService.startIngestionExecutor();
+        try {
+            rateService.fetchAndStoreExchangeRatesForAllCurrencies();
+        } finally {
+            rateService.stopIngestionExecutor();
+        }
+
+        verify(bundesbank, never()).fetchAndStoreExchangeRates("USD");
+        verify(ecb, never()).fetchAndStoreExchangeRates(anyString());
+        verify(repository).findByCurrencyCodeOrderByDateAsc("ISK");
+        assertEquals(1, meterRegistry.get("fx.ingestion.fetch").tags("currency", "XAU", "outcome", "not_served").timer().count());
+    }
+
+    @Test
+    void shouldFetchCurrenciesMissingFromBulkDownloadIndividuallyTest() throws Exception {
+        ExchangeRateFetchStrategy strategy = mockStrategy(Provider.BUNDESBANK);
+        ReflectionTestUtils.setField(rateService, "strategies", List.of(strategy));
+        ReflectionTestUtils.setField(rateService, "ingestionConcurrency", 2);
+        when(config.getCurrencies()).thenReturn(List.of("USD", "GBP"));
+        when(strategy.getMaxBulkSize()).thenReturn(40);
+        when(strategy.fetchAndStoreExchangeRatesInBulk(List.of("USD", "GBP")))
+                .thenReturn(Map.of("USD", FetchResult.unchanged()));
+        when(strategy.fetchAndStoreExchangeRates("GBP")).thenReturn(FetchResult.stored(2));
+
+        rateService.startIngestionExecutor();
+        try {
+            rateService.fetchAndStoreExchangeRatesForAllCurrencies();
+        } finally {
+            rateService.stopIngestionExecutor();
+        }
+
+        verify(strategy, never()).fetchAndStoreExchangeRates("USD");
+        verify(strategy).fetchAndStoreExchangeRates("GBP");
+    }
+
+    @Test
+    void shouldWriteSnapshotAfterIngestionStoredRatesTest() throws Exception {
+        ExchangeRateFetchStrategy strategy = mockStrategy(Provider.BUNDESBANK);
+        ReflectionTestUtils.setField(rateService, "strategies", List.of(strategy));
+        ReflectionTestUtils.setField(rateService, "ingestionConcurrency", 2);
+        when(config.getCurrencies()).thenReturn(List.of("USD"));
+        when(strategy.fetchAndStoreExchangeRates("USD")).thenReturn(FetchResult.stored(3));
+        when(exchangeRateSnapshot.isEnabled()).thenReturn(true);
+        when(repository.count()).thenReturn(3L);
+
+        rateService.startIngestionExecutor();
+        try {
+            rateService.fetchAndStoreExchangeRatesForAllCurrencies();
+        } finally {
+            rateService.stopIngestionExecutor();
+        }
+
+        verify(exchangeRateSnapshot).write();
+        assertEquals(3L, rateService.getStoredRateCount());
+    }
+
+    @Test
+    void shouldRestoreIndexAndCurrenciesFromSnapshotTest() throws Exception {
+        LocalDate date = LocalDate.of(2024, 1, 2);
+        when(exchangeRateSnapshot.isEnabled()).thenReturn(true);
+        when(exchangeRateSnapshot.load()).thenReturn(1L);
+        when(repository.findDistinctCurrencies()).thenReturn(List.of("USD"));
+        when(repository.findByCurrencyCodeOrderByDateAsc("USD"))
+                .thenReturn(List.of(new ExchangeRate(1L,"USD", new BigDecimal("1.10"),date)));
+        long versionBefore = datasetVersion.getVersion();
+
+        assertEquals(1L, rateService.restoreFromSnapshot());
+
+        assertEquals(ExchangeRateIndex.toScaled(new BigDecimal("1.10")), exchangeRateIndex.findScaledRate("USD", date));
+        assertEquals(List.of("USD"), rateService.getAllCurrencies());
+        assertTrue(datasetVersion.getVersion() > versionBefore);
+    }
+
+    @Test
+    void shouldIgnoreUnreadableSnapshotTest() throws Exception {
+        when(exchangeRateSnapshot.isEnabled()).thenReturn(true);
+        when(exchangeRateSnapshot.load()).thenThrow(new java.io.IOException("Not a binary exchange rate stream."));
+
+        assertEquals(0L, rateService.restoreFromSnapshot());
+        verify(repository, never()).findDistinctCurrencies();
+    }
+
+    @Test
+    void shouldKeepDatasetVersionWhenIngestionStoresNothingTest() throws Exception {
+        ExchangeRateFetchStrategy strategy = mockStrategy(Provider.BUNDESBANK);
+        ReflectionTestUtils.setField(rateService, "strategies", List.of(strategy));
+        ReflectionTestUtils.setField(rateService, "ingestionConcurrency", 2);
+        when(config.getCurrencies()).thenReturn(List.of("USD", "GBP"));
+        when(strategy.fetchAndStoreExchangeRates("USD")).thenReturn(FetchResult.unchanged());
+        when(strategy.fetchAndStoreExchangeRates("GBP")).thenReturn(FetchResult.stored(0));
+        long versionBefore = datasetVersion.getVersion();
+
+        rateService.startIngestionExecutor();
+        try {
+            rateService.fetchAndStoreExchangeRatesForAllCurrencies();
+        } finally {
+            rateService.stopIngestionExecutor();
+        }
+
+        assertEquals(versionBefore, datasetVersion.getVersion());
+    }
+
+    @Test
+    void shouldSkipProviderWhileItsCircuitBreakerIsOpenTest(){
+        ExchangeRateFetchStrategy bundesbank = mockStrategy(Provider.BUNDESBANK);
+        ExchangeRateFetchStrategy ecb = mockStrategy(Provider.ECB);
+        ReflectionTestUtils.setField(rateService, "strategies", List.of(bundesbank, ecb));
+        when(bundesbank.fetchAndStoreExchangeRates("USD")).thenThrow(new UncheckedIOException(new IOException("HTTP 503")));
+        when(ecb.fetchAndStoreExchangeRates("USD")).thenReturn(FetchResult.stored(1));
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals(1, rateService.fetchAndStoreExchangeRates("USD").getStored());
+        }
+
+        // The breaker opens after the minimum of 5 calls, all failed
+        verify(bundesbank, times(5)).fetchAndStoreExchangeRates("USD");
+        verify(ecb, times(8)).fetchAndStoreExchangeRates("USD");
+        assertEquals("OPEN", rateService.getProviderStats().get(0).getCircuitState());
+        assertEquals(5.0, meterRegistry.get("fx.ingestion.failures").tag("provider", "BUNDESBANK").counter().count());
+        assertEquals(3, rateService.getProviderStats().get(0).getRejected());
+    }
+
+    @Test
+    void shouldKeepCircuitBreakerClosedWhenProviderAnswersNotFoundTest(){
+        ExchangeRateFetchStrategy bundesbank = mockStrategy(Provider.BUNDESBANK);
+        ExchangeRateFetchStrategy ecb = mockStrategy(Provider.ECB);
+        ReflectionTestUtils.setField(rateService, "strategies", List.of(bundesbank, ecb));
+        when(bundesbank.fetchAndStoreExchangeRates("XAU"))
+                .thenThrow(new UncheckedIOException(new ProviderStatusException(404, "https://bundesbank.test/XAU")));
+        when(bundesbank.fetchAndStoreExchangeRates("ISK")).thenReturn(FetchResult.notServed());
+        when(ecb.fetchAndStoreExchangeRates(anyString())).thenReturn(FetchResult.stored(1));
+
+        for (int i = 0; i < 8; i++) {
+            rateService.fetchAndStoreExchangeRates("XAU");
+            rateService.fetchAndStoreExchangeRates("ISK");
+        }
+
+        // Unknown series say nothing about the provider's health, so it is still asked every time
+        verify(bundesbank, times(8)).fetchAndStoreExchangeRates("XAU");
+        verify(bundesbank, times(8)).fetchAndStoreExchangeRates("ISK");
+        verify(ecb, times(16)).fetchAndStoreExchangeRates(anyString());
+        assertEquals("CLOSED", rateService.getProviderStats().get(0).getCircuitState());
+        assertEquals(0, rateService.getProviderStats().get(0).getRejected());
+    }
+
+    @Test
+    void shouldHedgeSlowProviderWithNextOneTest() throws Exception {
+        ExchangeRateFetchStrategy bundesbank = mockStrategy(Provider.BUNDESBANK);
+        ExchangeRateFetchStrategy ecb = mockStrategy(Provider.ECB);
+        ReflectionTestUtils.setField(rateService, "strategies", List.of(bundesbank, ecb));
+        ReflectionTestUtils.setField(rateService, "hedgeDelayMs", 50L);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bundesbank.fetchAndStoreExchangeRates("USD")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return FetchResult.stored(1);
+        });
+        when(ecb.fetchAndStoreExchangeRates("USD")).thenReturn(FetchResult.stored(2));
+
+        rateService.startIngestionExecutor();
+        try {
+            assertEquals(2, rateService.fetchAndStoreExchangeRates("USD").getStored());
+        } finally {
+            release.countDown();
+            rateService.stopIngestionExecutor();
+        }
+        verify(ecb).fetchAndStoreExchangeRates("USD");
+    }
+
+    @Test
+    void shouldNotHedgeProviderAnsweringWithinDelayTest() throws Exception {
+        ExchangeRateFetchStrategy bundesbank = mockStrategy(Provider.BUNDESBANK);
+        ExchangeRateFetchStrategy ecb = mockStrategy(Provider.ECB);
+        ReflectionTestUtils.setField(rateService, "strategies", List.of(bundesbank, ecb));
+        ReflectionTestUtils.setField(rateService, "hedgeDelayMs", 5_000L);
+        when(bundesbank.fetchAndStoreExchangeRates("USD")).thenReturn(FetchResult.stored(1));
+
+        rateService.startIngestionExecutor();
+        try {
+            assertEquals(1, rateService.fetchAndStoreExchangeRates("USD").getStored());
+        } finally {
+            rateService.stopIngestionExecutor();
+        }
+        verify(ecb, never()).fetchAndStoreExchangeRates(anyString());
+    }
+
+    private static ExchangeRateFetchStrategy mockStrategy(Provider provider) {
+        ExchangeRateFetchStrategy strategy = mock(ExchangeRateFetchStrategy.class);
+        lenient().when(strategy.getProvider()).thenReturn(provider);
+        return strategy;
+    }
 }